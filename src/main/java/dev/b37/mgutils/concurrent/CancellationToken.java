@@ -0,0 +1,25 @@
+package dev.b37.mgutils.concurrent;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Lets a running task find out that it has been cancelled, so that it can stop early instead of doing the work nobody will use.
+ *
+ * @see TaskInvoker#submitCancellable
+ * @since 3.7.0
+ */
+public interface CancellationToken {
+    /**
+     * @return {@code true} if the task has been cancelled.
+     */
+    boolean isCancelled();
+
+    /**
+     * @throws CancellationException Thrown if the task has been cancelled.
+     */
+    default void throwIfCancelled() throws CancellationException {
+        if (isCancelled()) {
+            throw new CancellationException("The task has been cancelled");
+        }
+    }
+}
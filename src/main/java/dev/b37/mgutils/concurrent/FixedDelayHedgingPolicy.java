@@ -0,0 +1,17 @@
+package dev.b37.mgutils.concurrent;
+
+/**
+ * @since 3.7.0
+ */
+class FixedDelayHedgingPolicy implements HedgingPolicy {
+    private final long delayNanos;
+
+    public FixedDelayHedgingPolicy(long delayNanos) {
+        this.delayNanos = delayNanos;
+    }
+
+    @Override
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+}
@@ -0,0 +1,190 @@
+package dev.b37.mgutils.concurrent;
+
+import dev.b37.mgutils.delegate.ExceptionalConsumer;
+import dev.b37.mgutils.delegate.MultiConsumer;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Used for executing tasks that may split themselves into subtasks, distributing them among threads using {@link ForkJoinPool}.<br>
+ * Unlike {@link TaskInvoker}, which executes a flat list of tasks, a task accepted by this class can {@link Context#fork fork} subtasks
+ * at any moment, and the idle threads steal them from the busy ones.
+ * This way irregular divide-and-conquer workloads (e.g. tree walks or recursive splitting of ranges) are balanced automatically
+ * without splitting them up-front.<br><br>
+ * Main methods:<br>
+ * <ul>
+ *     <li>{@link #submit(ExceptionalConsumer)} - accepts a task. The task <em>does not</em> start executing;</li>
+ *     <li>{@link #completeAll()} - executes all accepted tasks along with their subtasks, waits for their completion, and returns the results.</li>
+ * </ul>
+ *
+ * @param <T> The type of value returned by the executed tasks.
+ * @since 3.7.0
+ */
+public class ForkJoinTaskInvoker<T> {
+    private final Queue<ExceptionalConsumer<Context<T>>> tasks = new ConcurrentLinkedQueue<>();
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an instance using {@link ForkJoinPool#commonPool()}.
+     */
+    public ForkJoinTaskInvoker() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ForkJoinTaskInvoker(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Accepts a task by adding it to the list for execution. The task <em>does not</em> start executing.<br>
+     * The values that are passed to the task's {@link Context} will be added to the output list.
+     * The task can also fork subtasks using {@link Context#fork}.
+     */
+    public void submit(ExceptionalConsumer<Context<T>> task) {
+        tasks.add(task);
+    }
+
+    /**
+     * Executes all still uncompleted tasks along with all their subtasks, waits for their completion, and returns the results.<br>
+     * The values of a task precede the values of its subtasks, which follow in the order the subtasks were forked.<br>
+     * Calling this method clears the list of accepted tasks.
+     *
+     * @throws RuntimeException Thrown if any task has failed. A checked exception is wrapped into {@link RuntimeException}.
+     */
+    public List<T> completeAll() {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<TaskNode<T>> rootNodes = new ArrayList<>();
+        ExceptionalConsumer<Context<T>> task;
+        while ((task = tasks.poll()) != null) {
+            rootNodes.add(new TaskNode<>(task, failure));
+        }
+
+        if (rootNodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(rootNodes);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            // the pool may rethrow a copy of the exception wrapped into another one, so the original exception is thrown instead
+            Throwable originalException = failure.get();
+            if (originalException == null) {
+                throw e;
+            }
+            if (originalException instanceof RuntimeException) {
+                throw (RuntimeException) originalException;
+            }
+            if (originalException instanceof Error) {
+                throw (Error) originalException;
+            }
+            throw new RuntimeException(originalException);
+        }
+
+        return collectValues(rootNodes);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("tasks", tasks.size())
+                .append("pool", pool)
+                .toString();
+    }
+
+    private static <T> List<T> collectValues(List<TaskNode<T>> rootNodes) {
+        List<T> values = new ArrayList<>();
+
+        // the tree may be deep, so it's traversed without recursion
+        Deque<TaskNode<T>> stack = new ArrayDeque<>();
+        pushReversed(stack, rootNodes);
+
+        while (!stack.isEmpty()) {
+            TaskNode<T> node = stack.pop();
+            values.addAll(node.values);
+            pushReversed(stack, node.subtasks);
+        }
+
+        return values;
+    }
+
+    private static <T> void pushReversed(Deque<TaskNode<T>> stack, List<TaskNode<T>> nodes) {
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            stack.push(nodes.get(i));
+        }
+    }
+
+    /**
+     * Accepts the values of a task and lets it fork subtasks.<br>
+     * The context must only be used by the thread executing the task it has been passed to.
+     *
+     * @param <T> The type of value returned by the executed tasks.
+     */
+    public interface Context<T> extends MultiConsumer<T> {
+        /**
+         * Forks the {@code subtask}, which will be executed asynchronously by this or another thread of the pool.<br>
+         * The task is completed only when all its subtasks are completed.
+         */
+        void fork(ExceptionalConsumer<Context<T>> subtask);
+    }
+
+    private static class TaskNode<T> extends RecursiveAction implements Context<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final ExceptionalConsumer<Context<T>> task;
+        private final AtomicReference<Throwable> failure;
+        private final List<T> values = new ArrayList<>();
+        private final List<TaskNode<T>> subtasks = new ArrayList<>();
+
+        private TaskNode(ExceptionalConsumer<Context<T>> task, AtomicReference<Throwable> failure) {
+            this.task = task;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                task.accept(this);
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+                throw e;
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+                throw new RuntimeException(e);
+            }
+
+            // the last forked subtasks are on top of the local queue, so joining them first lets this thread execute them itself
+            for (int i = subtasks.size() - 1; i >= 0; i--) {
+                subtasks.get(i).join();
+            }
+        }
+
+        @Override
+        public void accept(T item) {
+            values.add(item);
+        }
+
+        @Override
+        public void acceptAll(Collection<T> items) {
+            values.addAll(items);
+        }
+
+        @Override
+        public void fork(ExceptionalConsumer<Context<T>> subtask) {
+            TaskNode<T> subtaskNode = new TaskNode<>(subtask, failure);
+            subtasks.add(subtaskNode);
+            subtaskNode.fork();
+        }
+    }
+}
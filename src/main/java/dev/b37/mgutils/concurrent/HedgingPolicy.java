@@ -0,0 +1,40 @@
+package dev.b37.mgutils.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines when a duplicate of a slow task is started by {@link TaskInvoker#submitHedged}.<br>
+ * The first of the attempts to complete successfully provides the result and the other one is cancelled.
+ *
+ * @since 3.7.0
+ */
+public interface HedgingPolicy {
+    /**
+     * @return The time since the start of a task after which a duplicate of the task is started if the task has not completed yet.
+     */
+    long getDelayNanos();
+
+    /**
+     * Records the latency of a task, from its start until one of the attempts provided the result.
+     */
+    default void recordLatency(long latencyNanos) { }
+
+    /**
+     * Creates a policy starting a duplicate after the fixed {@code delay}.
+     */
+    static HedgingPolicy fixedDelay(long delay, TimeUnit unit) {
+        return new FixedDelayHedgingPolicy(unit.toNanos(delay));
+    }
+
+    /**
+     * Creates a policy starting a duplicate once a task has been running longer than the given {@code percentile}
+     * of the latencies observed recently.<br>
+     * Until enough latencies are observed, the {@code initialDelay} is used.<br>
+     * A single policy instance is meant to be shared by the tasks of the same kind.
+     *
+     * @param percentile The percentile of the observed latencies, greater than 0 and not greater than 100, e.g. {@code 95}.
+     */
+    static HedgingPolicy percentile(double percentile, long initialDelay, TimeUnit unit) {
+        return new PercentileHedgingPolicy(percentile, unit.toNanos(initialDelay));
+    }
+}
@@ -3,6 +3,8 @@ package dev.b37.mgutils.concurrent;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
 /**
@@ -27,6 +29,7 @@ public class Lazy<T> implements Supplier<T> {
     private volatile boolean hasValue;
     private volatile T value;
     private Supplier<T> valueFactory;
+    private final Lock lock = new ReentrantLock();
 
     public Lazy(@NotNull Supplier<T> valueFactory) {
         this.valueFactory = Objects.requireNonNull(valueFactory, "valueFactory is null");
@@ -42,13 +45,16 @@ public class Lazy<T> implements Supplier<T> {
     @Override
     public T get() {
         if (!this.hasValue) {
-            synchronized (this) {
+            lock.lock();
+            try {
                 if (!this.hasValue) {
                     this.value = Objects.requireNonNull(this.valueFactory.get(),
                             "the value returned by valueFactory equals to null but must not");
                     this.hasValue = true;
                     this.valueFactory = null;
                 }
+            } finally {
+                lock.unlock();
             }
         }
 
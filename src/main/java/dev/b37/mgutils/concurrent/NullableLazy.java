@@ -4,6 +4,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
 /**
@@ -15,6 +17,7 @@ public class NullableLazy<T> implements Supplier<T> {
     private volatile boolean hasValue;
     private volatile T value;
     private Supplier<T> valueFactory;
+    private final Lock lock = new ReentrantLock();
 
     public NullableLazy(@NotNull Supplier<T> valueFactory) {
         Objects.requireNonNull(valueFactory, "valueFactory is null");
@@ -30,12 +33,15 @@ public class NullableLazy<T> implements Supplier<T> {
     @Override
     public T get() {
         if (!this.hasValue) {
-            synchronized (this) {
+            lock.lock();
+            try {
                 if (!this.hasValue) {
                     this.value = this.valueFactory.get();
                     this.hasValue = true;
                     this.valueFactory = null;
                 }
+            } finally {
+                lock.unlock();
             }
         }
 
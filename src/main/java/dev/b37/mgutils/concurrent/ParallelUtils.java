@@ -0,0 +1,136 @@
+package dev.b37.mgutils.concurrent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Parallel loops over index ranges built on {@link TaskInvoker}.<br>
+ * Instead of creating a task per index, a few worker tasks are created, and each of them repeatedly claims the next chunk of the range.
+ * The chunks get smaller as the range is running out (guided scheduling),
+ * so the workers are balanced even if some indexes take longer than the others.
+ * The current thread is one of the workers as well (see {@link TaskInvoker#completeAllAdaptive()}).
+ *
+ * @since 3.7.0
+ */
+public final class ParallelUtils {
+    private static final int MIN_CHUNK_SIZE = 16;
+    private static final int CHUNKS_PER_WORKER = 2;
+
+    private ParallelUtils() { }
+
+    /**
+     * Calls the {@code body} for each index from {@code from} (inclusive) to {@code to} (exclusive) in parallel,
+     * using as many workers as there are available processors.
+     *
+     * @see #parallelFor(ExecutorService, int, int, int, IntConsumer)
+     */
+    public static void parallelFor(ExecutorService executor, int from, int to, IntConsumer body) {
+        parallelFor(executor, Runtime.getRuntime().availableProcessors(), from, to, body);
+    }
+
+    /**
+     * Calls the {@code body} for each index from {@code from} (inclusive) to {@code to} (exclusive) in parallel and waits for the completion.<br>
+     * If the {@code body} throws an exception, the remaining indexes are skipped and the exception is rethrown.
+     *
+     * @param parallelism The maximum number of workers, including the current thread. Must be positive.
+     */
+    public static void parallelFor(ExecutorService executor, int parallelism, int from, int to, IntConsumer body) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive but equals to " + parallelism);
+        }
+        if (from >= to) {
+            return;
+        }
+
+        long length = (long) to - from;
+        int workerCount = (int) Math.min(parallelism, (length + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+        if (workerCount == 1) {
+            for (int i = from; i < to; i++) {
+                body.accept(i);
+            }
+            return;
+        }
+
+        AtomicInteger cursor = new AtomicInteger(from);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        TaskInvoker<Void> invoker = new TaskInvoker<>(executor);
+        for (int i = 0; i < workerCount; i++) {
+            invoker.submit(() -> {
+                try {
+                    runChunks(cursor, to, workerCount, body);
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                    // the other workers stop claiming new chunks
+                    cursor.set(to);
+                    throw e;
+                }
+            });
+        }
+
+        try {
+            invoker.completeAllAdaptive();
+        } catch (RuntimeException | Error e) {
+            // the invoker wraps the exception of a worker, so the original exception is thrown instead, as on the inline path
+            Throwable originalException = failure.get();
+            if (originalException instanceof RuntimeException) {
+                throw (RuntimeException) originalException;
+            }
+            if (originalException instanceof Error) {
+                throw (Error) originalException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Maps each index from {@code 0} (inclusive) to {@code size} (exclusive) using the {@code mapper} in parallel,
+     * using as many workers as there are available processors.
+     *
+     * @see #parallelMap(ExecutorService, int, int, IntFunction)
+     */
+    public static <T> List<T> parallelMap(ExecutorService executor, int size, IntFunction<? extends T> mapper) {
+        return parallelMap(executor, Runtime.getRuntime().availableProcessors(), size, mapper);
+    }
+
+    /**
+     * Maps each index from {@code 0} (inclusive) to {@code size} (exclusive) using the {@code mapper} in parallel and waits for the completion.<br>
+     * The values are written directly into a preallocated array, which backs the returned list.
+     *
+     * @param parallelism The maximum number of workers, including the current thread. Must be positive.
+     * @return The fixed-size list of the mapped values, where the value at each index is the value mapped from that index.
+     */
+    public static <T> List<T> parallelMap(ExecutorService executor, int parallelism, int size, IntFunction<? extends T> mapper) {
+        Object[] values = new Object[size];
+        parallelFor(executor, parallelism, 0, size, i -> values[i] = mapper.apply(i));
+
+        @SuppressWarnings("unchecked")
+        List<T> valueList = (List<T>) Arrays.asList(values);
+        return valueList;
+    }
+
+    private static void runChunks(AtomicInteger cursor, int to, int workerCount, IntConsumer body) {
+        while (true) {
+            int chunkFrom = cursor.get();
+            if (chunkFrom >= to) {
+                return;
+            }
+
+            long remaining = (long) to - chunkFrom;
+            long chunkSize = Math.max(MIN_CHUNK_SIZE, remaining / ((long) workerCount * CHUNKS_PER_WORKER));
+            int chunkTo = remaining <= chunkSize ? to : (int) (chunkFrom + chunkSize);
+
+            if (!cursor.compareAndSet(chunkFrom, chunkTo)) {
+                continue;
+            }
+
+            for (int i = chunkFrom; i < chunkTo; i++) {
+                body.accept(i);
+            }
+        }
+    }
+}
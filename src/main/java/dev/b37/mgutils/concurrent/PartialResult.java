@@ -0,0 +1,65 @@
+package dev.b37.mgutils.concurrent;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of the tasks that have completed in time, along with the report of the tasks that have not.<br>
+ * The tasks are identified by their indexes in the order they were accepted, starting from {@code 0}.
+ *
+ * @param <T> The type of value returned by the executed tasks.
+ * @see TaskInvoker#completeAllPartially(long, java.util.concurrent.TimeUnit)
+ * @since 3.7.0
+ */
+public class PartialResult<T> {
+    private final List<T> results;
+    private final List<Integer> timedOutTasks;
+    private final Map<Integer, Throwable> failedTasks;
+
+    public PartialResult(List<T> results, List<Integer> timedOutTasks, Map<Integer, Throwable> failedTasks) {
+        this.results = Collections.unmodifiableList(results);
+        this.timedOutTasks = Collections.unmodifiableList(timedOutTasks);
+        this.failedTasks = Collections.unmodifiableMap(failedTasks);
+    }
+
+    /**
+     * @return The results of the tasks that have completed successfully in time, in the order of the tasks.
+     */
+    public List<T> getResults() {
+        return results;
+    }
+
+    /**
+     * @return The indexes of the tasks that have not completed in time, in ascending order.
+     */
+    public List<Integer> getTimedOutTasks() {
+        return timedOutTasks;
+    }
+
+    /**
+     * @return The exceptions thrown by the failed tasks mapped by the indexes of the tasks.
+     */
+    public Map<Integer, Throwable> getFailedTasks() {
+        return failedTasks;
+    }
+
+    /**
+     * @return {@code true} if all the tasks have completed successfully in time.
+     */
+    public boolean isComplete() {
+        return timedOutTasks.isEmpty() && failedTasks.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("results", results.size())
+                .append("timedOutTasks", timedOutTasks)
+                .append("failedTasks", failedTasks.keySet())
+                .toString();
+    }
+}
@@ -0,0 +1,58 @@
+package dev.b37.mgutils.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the last {@link #SAMPLE_COUNT} latencies and recalculates the percentile every {@link #RECALCULATION_INTERVAL} recorded latencies.
+ * @since 3.7.0
+ */
+class PercentileHedgingPolicy implements HedgingPolicy {
+    private static final int SAMPLE_COUNT = 256;
+    private static final int MIN_SAMPLE_COUNT = 16;
+    private static final int RECALCULATION_INTERVAL = 16;
+
+    private final double percentile;
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_COUNT);
+    private final AtomicInteger recordedCount = new AtomicInteger(0);
+    private volatile long delayNanos;
+
+    public PercentileHedgingPolicy(double percentile, long initialDelayNanos) {
+        if (!(percentile > 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile must be greater than 0 and not greater than 100 but equals to " + percentile);
+        }
+
+        this.percentile = percentile;
+        this.delayNanos = initialDelayNanos;
+    }
+
+    @Override
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    @Override
+    public void recordLatency(long latencyNanos) {
+        int count = recordedCount.getAndIncrement();
+        samples.set(count & (SAMPLE_COUNT - 1), latencyNanos);
+
+        // the count is negative once it overflows, which means that all the samples are filled
+        int newCount = count + 1;
+        boolean isFilled = newCount < 0 || newCount >= SAMPLE_COUNT;
+        if ((isFilled || newCount >= MIN_SAMPLE_COUNT) && (newCount & (RECALCULATION_INTERVAL - 1)) == 0) {
+            delayNanos = calculatePercentile(isFilled ? SAMPLE_COUNT : newCount);
+        }
+    }
+
+    private long calculatePercentile(int sampleCount) {
+        long[] sortedSamples = new long[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            sortedSamples[i] = samples.get(i);
+        }
+        Arrays.sort(sortedSamples);
+
+        int index = (int) Math.ceil(percentile / 100 * sampleCount) - 1;
+        return sortedSamples[Math.max(0, index)];
+    }
+}
@@ -0,0 +1,267 @@
+package dev.b37.mgutils.concurrent;
+
+import dev.b37.mgutils.delegate.ExceptionalFunction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Processes items through a chain of stages, where each stage is executed by its own number of workers.<br>
+ * The stages are connected by bounded queues, so the items flow to the next stage as soon as they are ready,
+ * and a slow stage makes the previous stages wait instead of accumulating the items in memory.<br><br>
+ * Usage example:
+ * <pre>{@code
+ * Pipeline<Path, Document> pipeline = Pipeline.<Path>from(executor)
+ *         .thenApply(4, path -> parse(path))
+ *         .thenApply(16, record -> enrich(record));
+ *
+ * pipeline.process(paths, document -> write(document));
+ * }</pre>
+ * The pipeline is immutable, and each call to {@link #thenApply} returns a new pipeline, so the same pipeline may be processed multiple times.<br>
+ * Each {@code process} call needs {@code 1 + (the sum of the parallelism of the stages)} threads of the executor at the same time
+ * (one of them feeds the input into the first stage), otherwise the pipeline stalls.
+ *
+ * @param <I> The type of the input items.
+ * @param <O> The type of the items produced by the last stage.
+ * @since 3.7.0
+ */
+public class Pipeline<I, O> {
+    private static final int DEFAULT_QUEUE_CAPACITY_PER_WORKER = 16;
+    private static final Object END = new Object();
+
+    private final ExecutorService executor;
+    private final List<Stage> stages;
+
+    private Pipeline(ExecutorService executor, List<Stage> stages) {
+        this.executor = executor;
+        this.stages = stages;
+    }
+
+    /**
+     * Creates a pipeline without stages, which passes the input items as is.
+     *
+     * @param executor The executor that runs the workers of the stages.
+     */
+    public static <T> Pipeline<T, T> from(ExecutorService executor) {
+        return new Pipeline<>(executor, Collections.emptyList());
+    }
+
+    /**
+     * Returns a new pipeline with the stage appended, which takes its items from a queue with the capacity of
+     * {@code 16 * parallelism}.
+     *
+     * @see #thenApply(int, int, ExceptionalFunction)
+     */
+    public <R> Pipeline<I, R> thenApply(int parallelism, ExceptionalFunction<? super O, ? extends R> function) {
+        return thenApply(parallelism, parallelism * DEFAULT_QUEUE_CAPACITY_PER_WORKER, function);
+    }
+
+    /**
+     * Returns a new pipeline with the stage appended.<br>
+     * If the {@code function} returns {@code null}, the item is dropped and not passed to the next stage.
+     *
+     * @param parallelism   The number of workers that execute the stage. Must be positive.
+     * @param queueCapacity The capacity of the queue between the previous stage and this one. Must be positive.
+     * @param function      The function that maps the items produced by the previous stage.
+     */
+    public <R> Pipeline<I, R> thenApply(int parallelism, int queueCapacity, ExceptionalFunction<? super O, ? extends R> function) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive but equals to " + parallelism);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive but equals to " + queueCapacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        ExceptionalFunction<Object, Object> stageFunction = (ExceptionalFunction<Object, Object>) function;
+
+        List<Stage> newStages = new ArrayList<>(stages.size() + 1);
+        newStages.addAll(stages);
+        newStages.add(new Stage(parallelism, queueCapacity, stageFunction));
+        return new Pipeline<>(executor, Collections.unmodifiableList(newStages));
+    }
+
+    /**
+     * Passes the {@code input} items through the stages, and waits until all of them are processed.
+     *
+     * @return The items produced by the last stage, in the order they have been produced,
+     * which is not necessarily the order of the {@code input}.
+     * @see #process(Iterator, Consumer)
+     */
+    public List<O> process(Iterable<? extends I> input) {
+        List<O> outputs = new ArrayList<>();
+        process(input.iterator(), outputs::add);
+        return outputs;
+    }
+
+    /**
+     * @see #process(Iterator, Consumer)
+     */
+    public void process(Iterable<? extends I> input, Consumer<? super O> sink) {
+        process(input.iterator(), sink);
+    }
+
+    /**
+     * Passes the {@code input} items through the stages, and waits until all of them are processed.<br>
+     * The {@code input} is iterated by a separate thread of the executor, and the {@code sink} is called by the current thread
+     * for each item produced by the last stage, in the order they have been produced.<br>
+     * If a stage, the {@code input}, or the {@code sink} throws an exception, all the workers are stopped
+     * and the exception is rethrown wrapped with a {@link RuntimeException}.
+     *
+     * @throws CancellationException If the current thread has been interrupted while waiting.
+     */
+    public void process(Iterator<? extends I> input, Consumer<? super O> sink) throws CancellationException {
+        if (stages.isEmpty()) {
+            @SuppressWarnings("unchecked")
+            Iterator<? extends O> outputs = (Iterator<? extends O>) input;
+            outputs.forEachRemaining(sink);
+            return;
+        }
+
+        new Execution(input).run(sink);
+    }
+
+    private static class Stage {
+        private final int parallelism;
+        private final int queueCapacity;
+        private final ExceptionalFunction<Object, Object> function;
+
+        private Stage(int parallelism, int queueCapacity, ExceptionalFunction<Object, Object> function) {
+            this.parallelism = parallelism;
+            this.queueCapacity = queueCapacity;
+            this.function = function;
+        }
+    }
+
+    /**
+     * A single run of the pipeline.<br>
+     * Each stage passes the {@link #END} marker to the next stage once its last worker has finished.
+     * On failure, all the workers are interrupted, and the marker is forced into the output queue to wake up the current thread.
+     */
+    private class Execution {
+        private final Iterator<? extends I> input;
+        private final List<BlockingQueue<Object>> queues;
+        private final List<Future<?>> workers = new ArrayList<>();
+        private final Lock workersLock = new ReentrantLock();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private Execution(Iterator<? extends I> input) {
+            this.input = input;
+            this.queues = new ArrayList<>(stages.size() + 1);
+            for (Stage stage : stages) {
+                queues.add(new ArrayBlockingQueue<>(stage.queueCapacity));
+            }
+
+            Stage lastStage = stages.get(stages.size() - 1);
+            queues.add(new ArrayBlockingQueue<>(lastStage.parallelism * DEFAULT_QUEUE_CAPACITY_PER_WORKER));
+        }
+
+        private void run(Consumer<? super O> sink) {
+            BlockingQueue<Object> outputQueue = queues.get(stages.size());
+
+            try {
+                workersLock.lock();
+                try {
+                    for (int i = 0; i < stages.size(); i++) {
+                        startStage(i);
+                    }
+                    workers.add(executor.submit(this::feed));
+                } finally {
+                    workersLock.unlock();
+                }
+
+                Object item;
+                while ((item = outputQueue.take()) != END) {
+                    @SuppressWarnings("unchecked")
+                    O output = (O) item;
+                    sink.accept(output);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort(e);
+                throw new CancellationException("The current thread has been interrupted");
+            } catch (Throwable e) {
+                abort(e);
+            }
+
+            Throwable e = failure.get();
+            if (e != null) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void startStage(int index) {
+            Stage stage = stages.get(index);
+            BlockingQueue<Object> inputQueue = queues.get(index);
+            BlockingQueue<Object> outputQueue = queues.get(index + 1);
+            AtomicInteger remainingWorkers = new AtomicInteger(stage.parallelism);
+
+            for (int i = 0; i < stage.parallelism; i++) {
+                workers.add(executor.submit(() -> {
+                    try {
+                        Object item;
+                        while ((item = inputQueue.take()) != END) {
+                            Object output = stage.function.apply(item);
+                            if (output != null) {
+                                outputQueue.put(output);
+                            }
+                        }
+
+                        // the other workers of the stage are waiting for the marker as well
+                        inputQueue.put(END);
+                        if (remainingWorkers.decrementAndGet() == 0) {
+                            outputQueue.put(END);
+                        }
+                    } catch (Throwable e) {
+                        abort(e);
+                    }
+                }));
+            }
+        }
+
+        private void feed() {
+            BlockingQueue<Object> firstQueue = queues.get(0);
+            try {
+                while (input.hasNext()) {
+                    firstQueue.put(input.next());
+                }
+                firstQueue.put(END);
+            } catch (Throwable e) {
+                abort(e);
+            }
+        }
+
+        private void abort(Throwable e) {
+            if (!failure.compareAndSet(null, e)) {
+                // the interruptions caused by the first failure are not reported
+                return;
+            }
+
+            workersLock.lock();
+            try {
+                for (Future<?> worker : workers) {
+                    worker.cancel(true);
+                }
+            } finally {
+                workersLock.unlock();
+            }
+
+            BlockingQueue<Object> outputQueue = queues.get(stages.size());
+            while (!outputQueue.offer(END)) {
+                outputQueue.clear();
+            }
+        }
+    }
+}
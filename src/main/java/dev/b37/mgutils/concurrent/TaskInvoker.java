@@ -1,40 +1,77 @@
 package dev.b37.mgutils.concurrent;
 
+import dev.b37.mgutils.common.Reference;
+import dev.b37.mgutils.concurrent.execution.SharedScheduler;
 import dev.b37.mgutils.delegate.CollectionConsumer;
 import dev.b37.mgutils.delegate.ExceptionalConsumer;
+import dev.b37.mgutils.delegate.ExceptionalFunction;
 import dev.b37.mgutils.delegate.ExceptionalRunnable;
 import dev.b37.mgutils.delegate.MultiConsumer;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
-import java.util.Queue;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Used for executing a specific set of tasks, distributing them among threads using {@link ExecutorService}.<br><br>
  * Main methods:<br>
  * <ul>
  *     <li>{@link #submit(ExceptionalRunnable)} - accepts a task. The task <em>does not</em> start executing;</li>
- *     <li>{@link #completeAll()} - executes all accepted tasks using {@link #invokeAllTasks}, waits for their completion, and returns the results.</li>
+ *     <li>{@link #completeAll()} - executes all accepted tasks using {@link #invokeAllTasks}, waits for their completion, and returns the results;</li>
+ *     <li>{@link #completeAllStreaming()} - executes all accepted tasks and returns the results in the order the tasks complete.</li>
  * </ul>
  *
  * @param <T> The type of value returned by the executed tasks.
  * @since 1.0
  */
 public class TaskInvoker<T> {
+    private static final int DEFAULT_CHUNKS_PER_PROCESSOR = 4;
+    private static final long INLINE_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
     private final Queue<InvokerCallable<T>> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<InvokerCallable<T>> activeTasks = ConcurrentHashMap.newKeySet();
+    private final Lock cancellationLock = new ReentrantLock();
     private final ExecutorService executor;
+    @Nullable
+    private final TaskListener listener;
+
+    /**
+     * The exponentially weighted average duration of the tasks executed by {@link #completeAllAdaptive()}, {@code -1} if unknown.
+     */
+    private volatile long averageTaskNanos = -1;
 
     public TaskInvoker(ExecutorService executor) {
+        this(executor, null);
+    }
+
+    /**
+     * Creates an invoker reporting the queue wait time, the run time, and the outcome of every executed task to the {@code listener}.<br>
+     * Without a listener the tasks are not measured at all.
+     *
+     * @param listener The listener of the executed tasks, e.g. {@link TaskStatistics}. May be {@code null}.
+     * @since 3.7.0
+     */
+    public TaskInvoker(ExecutorService executor, @Nullable TaskListener listener) {
         this.executor = executor;
+        this.listener = listener;
     }
 
     /**
@@ -91,6 +128,130 @@ public class TaskInvoker<T> {
         }));
     }
 
+    /**
+     * Accepts an asynchronous task by adding it to the list for execution. The task <em>does not</em> start executing.<br>
+     * The value the returned {@link CompletionStage} is completed with will be added to the output list.<br>
+     * <br>
+     * The {@code task} itself is called by the executor, but the executor's thread is released as soon as the {@code task} returns,
+     * without waiting for the {@link CompletionStage} to complete.
+     * This way a small executor can drive a large number of concurrent asynchronous operations (e.g. non-blocking I/O calls).
+     *
+     * @since 3.7.0
+     */
+    public void submitAsync(Supplier<? extends CompletionStage<T>> task) {
+        tasks.add(InvokerCallable.ofAsync(task));
+    }
+
+    /**
+     * Accepts a task by adding it to the list for execution. The task <em>does not</em> start executing.<br>
+     * The task accepted returns a single value which will be added to the output list.<br>
+     * <br>
+     * When executed, if the task has not completed after the delay defined by the {@code hedgingPolicy},
+     * a duplicate of the task is started. The first of them to complete successfully provides the value and the other one is cancelled.
+     * The task fails only if all the started attempts fail.<br>
+     * Hedging reduces the tail latency of the tasks that are occasionally slow (e.g. calling a slow replica of a service),
+     * so the task must be safe to execute twice.<br>
+     * The executor's thread is not blocked while waiting for the attempts.
+     *
+     * @since 3.7.0
+     */
+    public void submitHedged(Callable<T> task, HedgingPolicy hedgingPolicy) {
+        tasks.add(new InvokerCallable<>(() -> {
+            return new TaskValue.Async<>(new HedgedCall<>(task, hedgingPolicy, executor).start());
+        }));
+    }
+
+    /**
+     * Accepts a task by adding it to the list for execution. The task <em>does not</em> start executing.<br>
+     * The task accepted returns a single value which will be added to the output list.<br>
+     * <br>
+     * The task receives a {@link CancellationToken} which is cancelled when {@link #cancelAll} is called,
+     * when the timeout passed to {@link #completeAll(long, TimeUnit)} is exceeded
+     * or when the task is cancelled by a fail-fast or streaming completion.
+     * Long-running tasks should check the token periodically to stop early and free the executor's thread.
+     *
+     * @since 3.7.0
+     */
+    public void submitCancellable(ExceptionalFunction<CancellationToken, T> task) {
+        tasks.add(new InvokerCallable<>(cancellationToken -> {
+            return new TaskValue.Single<>(task.apply(cancellationToken));
+        }));
+    }
+
+    /**
+     * Accepts a task with no return value, adding it to the list for execution. The task <em>does not</em> start executing.<br>
+     * No values will be added to the output list.<br>
+     * The task receives a {@link CancellationToken} to find out that it has been cancelled.
+     *
+     * @see #submitCancellable(ExceptionalFunction)
+     * @since 3.7.0
+     */
+    public void submitCancellableVoid(ExceptionalConsumer<CancellationToken> task) {
+        tasks.add(new InvokerCallable<>(cancellationToken -> {
+            task.accept(cancellationToken);
+            return TaskValue.Void.getInstance();
+        }));
+    }
+
+    /**
+     * Accepts tasks mapping the {@code inputs} using the {@code mapper}, one task per slice of at most {@code chunkSize} inputs.
+     * The tasks <u>do not</u> start executing.<br>
+     * The mapped values will be added to the output list in the order of the {@code inputs}.<br>
+     * <br>
+     * Each task maps its whole slice into a preallocated array, so the per-task overhead (the task objects, the futures
+     * and the executor's queue hand-off) is paid once per slice instead of once per input.
+     * It's recommended when the mapping of a single input is cheap.
+     *
+     * @param chunkSize The maximum number of inputs mapped by a single task, must be positive.
+     * @since 3.7.0
+     */
+    public <I> void submitChunked(Collection<? extends I> inputs, int chunkSize, ExceptionalFunction<? super I, ? extends T> mapper) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive but equals to " + chunkSize);
+        }
+
+        Object[] inputArray = inputs.toArray();
+        List<InvokerCallable<T>> invokerCallables = new ArrayList<>();
+
+        int chunkFrom = 0;
+        while (chunkFrom < inputArray.length) {
+            int from = chunkFrom;
+            int to = inputArray.length - from <= chunkSize ? inputArray.length : from + chunkSize;
+
+            invokerCallables.add(new InvokerCallable<>(() -> {
+                Object[] values = new Object[to - from];
+                for (int i = from; i < to; i++) {
+                    @SuppressWarnings("unchecked")
+                    I input = (I) inputArray[i];
+                    values[i - from] = mapper.apply(input);
+                }
+
+                @SuppressWarnings("unchecked")
+                List<T> valueList = (List<T>) Arrays.asList(values);
+                return new TaskValue.Multi<>(valueList);
+            }));
+
+            chunkFrom = to;
+        }
+
+        this.tasks.addAll(invokerCallables);
+    }
+
+    /**
+     * Accepts tasks mapping the {@code inputs} using the {@code mapper}, one task per slice of inputs.
+     * The tasks <u>do not</u> start executing.<br>
+     * The size of the slices is chosen to create several tasks per available processor.
+     *
+     * @see #submitChunked(Collection, int, ExceptionalFunction)
+     * @since 3.7.0
+     */
+    public <I> void submitChunked(Collection<? extends I> inputs, ExceptionalFunction<? super I, ? extends T> mapper) {
+        int chunkCount = Runtime.getRuntime().availableProcessors() * DEFAULT_CHUNKS_PER_PROCESSOR;
+        int chunkSize = Math.max(1, (inputs.size() + chunkCount - 1) / chunkCount);
+
+        submitChunked(inputs, chunkSize, mapper);
+    }
+
     /**
      * Accepts tasks by adding them to the list for execution. The tasks <u>do not</u> start executing.
      *
@@ -124,6 +285,20 @@ public class TaskInvoker<T> {
         this.tasks.addAll(invokerCallables);
     }
 
+    /**
+     * Accepts asynchronous tasks by adding them to the list for execution. The tasks <u>do not</u> start executing.
+     *
+     * @see #submitAsync(Supplier)
+     * @since 3.7.0
+     */
+    public void submitAllAsync(Collection<Supplier<? extends CompletionStage<T>>> tasks) {
+        List<InvokerCallable<T>> invokerCallables = tasks.stream()
+                .map(InvokerCallable::ofAsync)
+                .collect(Collectors.toList());
+
+        this.tasks.addAll(invokerCallables);
+    }
+
     /**
      * Executes all still uncompleted tasks using {@link #invokeAllTasks()}, waits for their completion, and returns the results.<br>
      * Calling this method clears the list of accepted tasks.
@@ -152,7 +327,102 @@ public class TaskInvoker<T> {
             return Collections.emptyList();
         }
 
-        return completeFutures(invokeAllTasks(timeout, unit));
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<Future<TaskValue<T>>> futures = invokeAllTasks(timeout, unit);
+        awaitAsyncValues(futures, deadline);
+        return completeFutures(futures);
+    }
+
+    /**
+     * Executes all still uncompleted tasks using {@link #invokeAllTasks()}, waits for their completion until the timeout is exceeded,
+     * and returns the results of the tasks that have completed in time.<br>
+     * Unlike {@link #completeAll(long, TimeUnit)}, the tasks that have timed out or failed don't cause an exception.
+     * Instead, they are reported by the returned {@link PartialResult}, so that the results available can still be used.<br>
+     * The tasks that have not completed in time are cancelled.<br>
+     * Calling this method clears the list of accepted tasks.
+     *
+     * @since 3.7.0
+     */
+    public PartialResult<T> completeAllPartially(long timeout, TimeUnit unit) {
+        if (tasks.isEmpty()) {
+            return new PartialResult<>(Collections.emptyList(), Collections.emptyList(), Collections.emptyMap());
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<Future<TaskValue<T>>> futures = invokeAllTasks(timeout, unit);
+
+        List<T> results = new ArrayList<>(futures.size());
+        List<Integer> timedOutTasks = new ArrayList<>();
+        Map<Integer, Throwable> failedTasks = new LinkedHashMap<>();
+
+        for (int i = 0; i < futures.size(); i++) {
+            Future<TaskValue<T>> future = futures.get(i);
+            if (future.isCancelled()) {
+                timedOutTasks.add(i);
+                continue;
+            }
+
+            CompletableFuture<T> asyncResult = null;
+            try {
+                TaskValue<T> taskValue = future.get();
+                if (taskValue.isAsync()) {
+                    asyncResult = taskValue.asAsync().getStage().toCompletableFuture();
+                    results.add(asyncResult.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } else {
+                    streamValues(taskValue).forEach(results::add);
+                }
+            } catch (TimeoutException e) {
+                asyncResult.cancel(true);
+                timedOutTasks.add(i);
+            } catch (ExecutionException e) {
+                failedTasks.put(i, e.getCause());
+            } catch (CancellationException e) {
+                failedTasks.put(i, e);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        return new PartialResult<>(results, timedOutTasks, failedTasks);
+    }
+
+    /**
+     * Executes all still uncompleted tasks using {@link #invokeAllTasks()}, waits for their completion,
+     * and returns the results reduced by the {@code collector}.<br>
+     * The results are accumulated directly into the {@code collector}'s container in the order of the tasks,
+     * so no intermediate list of all the results is created.<br>
+     * Calling this method clears the list of accepted tasks.
+     *
+     * @throws CancellationException May be thrown if the {@link #cancelAll} method was called while the current tasks were being executed.
+     * @since 3.7.0
+     */
+    public <A, R> R completeAll(Collector<? super T, A, R> collector) throws CancellationException {
+        A container = collector.supplier().get();
+        BiConsumer<A, ? super T> accumulator = collector.accumulator();
+
+        completeAll(value -> accumulator.accept(container, value));
+
+        return collector.finisher().apply(container);
+    }
+
+    /**
+     * Executes all still uncompleted tasks using {@link #invokeAllTasks()}, waits for their completion,
+     * and passes the results to the {@code consumer} in the order of the tasks.<br>
+     * No intermediate list of all the results is created. Any {@link MultiConsumer} can be used as the {@code consumer}.<br>
+     * Calling this method clears the list of accepted tasks.
+     *
+     * @param consumer The consumer accepting the results. It's called by the current thread only.
+     * @throws CancellationException May be thrown if the {@link #cancelAll} method was called while the current tasks were being executed.
+     * @since 3.7.0
+     */
+    public void completeAll(Consumer<? super T> consumer) throws CancellationException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        for (Future<TaskValue<T>> future : invokeAllTasks()) {
+            streamValues(getFutureResult(future)).forEach(consumer);
+        }
     }
 
     /**
@@ -177,20 +447,295 @@ public class TaskInvoker<T> {
      * @since 3.0.0
      */
     public void completeAllVoid(long timeout, TimeUnit unit) throws CancellationException {
-        completeFuturesVoid(invokeAllTasks(timeout, unit));
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<Future<TaskValue<T>>> futures = invokeAllTasks(timeout, unit);
+        awaitAsyncValues(futures, deadline);
+        completeFuturesVoid(futures);
+    }
+
+    /**
+     * Executes all still uncompleted tasks, waits for their completion, and returns the results.<br>
+     * Unlike {@link #completeAll()}, as soon as any task fails, the tasks that have not completed yet are cancelled
+     * (the running ones are interrupted) and the exception is thrown immediately without waiting for the other tasks.<br>
+     * Calling this method clears the list of accepted tasks.
+     *
+     * @throws CancellationException May be thrown if the {@link #cancelAll} method was called while the current tasks were being executed.
+     * @since 3.7.0
+     */
+    public List<T> completeAllFailFast() throws CancellationException {
+        List<InvokerCallable<T>> drainedTasks = drainTasks();
+        if (drainedTasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<TaskExecution<T>> executions = dispatchAll(drainedTasks);
+        CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+
+        try {
+            for (TaskExecution<T> execution : executions) {
+                execution.result.whenComplete((value, e) -> {
+                    if (e != null) {
+                        firstFailure.completeExceptionally(e);
+                    }
+                });
+            }
+
+            getFutureResult(CompletableFuture.anyOf(allOf(executions), firstFailure));
+        } catch (RuntimeException e) {
+            executions.forEach(TaskExecution::cancel);
+            throw e;
+        }
+
+        return completeFutures(resultsOf(executions));
+    }
+
+    /**
+     * Executes all still uncompleted tasks without blocking the calling thread.<br>
+     * Calling this method clears the list of accepted tasks.
+     *
+     * @return A {@link CompletableFuture} that is completed with the results once all the tasks have completed.<br>
+     *         If any task fails, the future is completed exceptionally as soon as all the tasks have completed.<br>
+     *         If the {@link #cancelAll} method is called while the tasks are being executed,
+     *         the future may be completed exceptionally with a {@link CancellationException}.
+     * @since 3.7.0
+     */
+    public CompletableFuture<List<T>> completeAllAsync() {
+        List<InvokerCallable<T>> drainedTasks = drainTasks();
+        if (drainedTasks.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        List<TaskExecution<T>> executions = dispatchAll(drainedTasks);
+        return allOf(executions).thenApply(ignored -> completeFutures(resultsOf(executions)));
+    }
+
+    /**
+     * Executes all still uncompleted tasks without blocking the calling thread.<br>
+     * Calling this method clears the list of accepted tasks, which means that the results can't be obtained afterward.
+     *
+     * @return A {@link CompletableFuture} that is completed once all the tasks have completed.
+     * @see #completeAllAsync()
+     * @since 3.7.0
+     */
+    public CompletableFuture<Void> completeAllVoidAsync() {
+        List<InvokerCallable<T>> drainedTasks = drainTasks();
+        if (drainedTasks.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return allOf(dispatchAll(drainedTasks));
+    }
+
+    /**
+     * Executes all still uncompleted tasks, waits for their completion, and returns the results.<br>
+     * Unlike {@link #completeAll()}, the current thread takes part in executing the tasks:
+     * <ul>
+     *     <li>if there is a single task, or the tasks are expected to take less time than handing them over to the executor,
+     *     they are executed by the current thread only;</li>
+     *     <li>otherwise, the tasks are handed over to the executor, and instead of just waiting,
+     *     the current thread executes the tasks that have not been taken by the executor's threads yet.</li>
+     * </ul>
+     * The expected duration of the tasks is learned from the durations measured by the previous calls to this method.<br>
+     * Calling this method clears the list of accepted tasks.
+     *
+     * @throws CancellationException May be thrown if the {@link #cancelAll} method was called while the current tasks were being executed.
+     * @since 3.7.0
+     */
+    public List<T> completeAllAdaptive() throws CancellationException {
+        List<InvokerCallable<T>> drainedTasks = drainTasks();
+        if (drainedTasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        LongAdder runTimeNanos = new LongAdder();
+        List<TaskExecution<T>> executions = new ArrayList<>(drainedTasks.size());
+        for (InvokerCallable<T> task : drainedTasks) {
+            executions.add(new TaskExecution<>(task, runTimeNanos));
+        }
+
+        long averageTaskNanos = this.averageTaskNanos;
+        boolean isInline = executions.size() == 1
+                || (averageTaskNanos >= 0 && averageTaskNanos * executions.size() <= INLINE_THRESHOLD_NANOS);
+
+        if (isInline) {
+            for (TaskExecution<T> execution : executions) {
+                markDispatched(execution.task);
+                activeTasks.add(execution.task);
+                try {
+                    execution.run();
+                } finally {
+                    activeTasks.remove(execution.task);
+                }
+            }
+        } else {
+            try {
+                executions.forEach(this::start);
+            } catch (RuntimeException e) {
+                executions.forEach(TaskExecution::cancel);
+                throw e;
+            }
+
+            // the executor's threads take the tasks from the first ones, so the current thread starts from the last ones
+            for (int i = executions.size() - 1; i >= 0; i--) {
+                executions.get(i).run();
+            }
+        }
+
+        try {
+            return completeFutures(resultsOf(executions));
+        } finally {
+            long batchAverageNanos = runTimeNanos.sum() / executions.size();
+            this.averageTaskNanos = averageTaskNanos < 0
+                    ? batchAverageNanos
+                    : (averageTaskNanos * 3 + batchAverageNanos) / 4;
+        }
+    }
+
+    /**
+     * Executes all still uncompleted tasks, waits for their completion, and returns the results reduced to a single value.<br>
+     * Unlike reducing the list returned by {@link #completeAll()}, the reduction is done by the executor's threads:
+     * every thread folds the results of the tasks it has executed into its own partial value using the {@code accumulator},
+     * then the partial values are combined pairwise in a tree using the {@code combiner}, with each level of the tree executed in parallel.<br>
+     * The order in which the results are accumulated and combined is not defined,
+     * so the {@code accumulator} and the {@code combiner} must be associative and commutative.<br>
+     * Calling this method clears the list of accepted tasks.<br>
+     * <br>
+     * If a task fails, the tasks that have not completed yet are cancelled and the exception is thrown.
+     *
+     * @param identity The initial partial value of every thread. Must be an identity for the {@code combiner}.
+     * @param accumulator Folds a result into a partial value.
+     * @param combiner Combines two partial values.
+     * @throws CancellationException May be thrown if the {@link #cancelAll} method was called while the current tasks were being executed.
+     * @since 3.7.0
+     */
+    public <U> U completeAndReduce(U identity, BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner) throws CancellationException {
+        List<InvokerCallable<T>> drainedTasks = drainTasks();
+        if (drainedTasks.isEmpty()) {
+            return identity;
+        }
+
+        Map<Thread, Reference<U>> partials = new ConcurrentHashMap<>();
+        List<TaskExecution<T>> executions = new ArrayList<>(drainedTasks.size());
+        List<CompletableFuture<Void>> accumulations = new ArrayList<>(drainedTasks.size());
+
+        try {
+            for (InvokerCallable<T> task : drainedTasks) {
+                TaskExecution<T> execution = new TaskExecution<>(task);
+                // registered before the task starts, so the results are accumulated by the thread completing the task
+                accumulations.add(execution.result.thenAccept(taskValue -> {
+                    Reference<U> partial = partials.computeIfAbsent(Thread.currentThread(), thread -> new Reference<>(identity));
+                    streamValues(taskValue).forEach(value -> partial.set(accumulator.apply(partial.get(), value)));
+                }));
+                executions.add(start(execution));
+            }
+
+            getFutureResult(CompletableFuture.allOf(accumulations.toArray(new CompletableFuture[0])));
+        } catch (RuntimeException e) {
+            executions.forEach(TaskExecution::cancel);
+            throw e;
+        }
+
+        List<U> level = partials.values().stream()
+                .map(Reference::get)
+                .collect(Collectors.toList());
+
+        while (level.size() > 1) {
+            TaskInvoker<U> combiningInvoker = new TaskInvoker<>(executor);
+            for (int i = 0; i + 1 < level.size(); i += 2) {
+                U left = level.get(i);
+                U right = level.get(i + 1);
+                combiningInvoker.submit(() -> combiner.apply(left, right));
+            }
+
+            List<U> nextLevel = new ArrayList<>(combiningInvoker.completeAll());
+            if (level.size() % 2 != 0) {
+                nextLevel.add(level.get(level.size() - 1));
+            }
+
+            level = nextLevel;
+        }
+
+        return level.isEmpty() ? identity : level.get(0);
+    }
+
+    /**
+     * Executes all still uncompleted tasks and returns their results as a {@link Stream} in the order the tasks complete.<br>
+     * Unlike {@link #completeAll()}, this method does not wait for the tasks. They start executing immediately,
+     * and every result is handed to the stream as soon as its task finishes,
+     * so the results can be processed while the slower tasks are still running.<br>
+     * Calling this method clears the list of accepted tasks.<br>
+     * <br>
+     * If a task fails, the tasks that have not completed yet are cancelled and the exception is thrown by the stream.<br>
+     * Closing the stream before it is fully consumed cancels the tasks that have not completed yet.
+     *
+     * @throws CancellationException May be thrown by the stream if the {@link #cancelAll} method was called while the current tasks were being executed.
+     * @since 3.7.0
+     */
+    public Stream<T> completeAllStreaming() throws CancellationException {
+        return streamCompletions(drainTasks().iterator(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lazily takes tasks from the {@code source}, executes them and returns their results as a {@link Stream} in the order the tasks complete.<br>
+     * At most {@code maxInFlight} tasks are in flight at the same time. A task is in flight from the moment it's taken from the {@code source}
+     * until its result is consumed from the stream, so the next tasks are only taken as fast as the results are consumed.
+     * This way the memory used stays bounded regardless of the number of tasks provided by the {@code source}.<br>
+     * The accepted tasks are not affected by this method.<br>
+     * <br>
+     * If a task fails, the tasks that have not completed yet are cancelled and the exception is thrown by the stream.<br>
+     * Closing the stream before it is fully consumed cancels the tasks that have not completed yet.
+     *
+     * @param source The source of the tasks. It's only accessed by the thread consuming the returned stream.
+     * @param maxInFlight The maximum number of tasks in flight, must be positive.
+     * @throws CancellationException May be thrown by the stream if the {@link #cancelAll} method was called while the current tasks were being executed.
+     * @since 3.7.0
+     */
+    public Stream<T> completeAllStreaming(Iterator<? extends Callable<T>> source, int maxInFlight) throws CancellationException {
+        return completeAllStreaming(
+                StreamSupport.stream(Spliterators.spliteratorUnknownSize(source, Spliterator.ORDERED), false),
+                maxInFlight);
+    }
+
+    /**
+     * Lazily takes tasks from the {@code source}, executes them and returns their results as a {@link Stream} in the order the tasks complete.<br>
+     * Closing the returned stream also closes the {@code source}.
+     *
+     * @see #completeAllStreaming(Iterator, int)
+     * @since 3.7.0
+     */
+    public Stream<T> completeAllStreaming(Stream<? extends Callable<T>> source, int maxInFlight) throws CancellationException {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive but equals to " + maxInFlight);
+        }
+
+        Iterator<InvokerCallable<T>> sourceTasks = source
+                .map(InvokerCallable::<T>ofCallable)
+                .iterator();
+
+        return streamCompletions(sourceTasks, maxInFlight)
+                .onClose(source::close);
     }
 
     /**
      * Cancels all the accepted tasks. If attempted to execute, these tasks will throw a {@link CancellationException}.<br>
      * Multiple calls to the method for the same tasks will not lead to anything.<br>
-     * Clears the accepted tasks list.
+     * Clears the accepted tasks list.<br>
+     * <br>
+     * Since v3.7.0 it also cancels the tasks started by {@link #completeAllStreaming} methods that have not completed yet.<br>
+     * Since v3.7.0 the tasks that are already running are notified through their {@link CancellationToken}s
+     * (see {@link #submitCancellable(ExceptionalFunction)}).
      */
     public void cancelAll() {
+        for (InvokerCallable<T> task : this.activeTasks) {
+            task.cancel();
+        }
+
         if (this.tasks.isEmpty()) {
             return;
         }
 
-        synchronized (this.tasks) {
+        cancellationLock.lock();
+        try {
             if (!this.tasks.isEmpty()) {
                 try {
                     for (InvokerCallable<T> task : this.tasks) {
@@ -200,6 +745,8 @@ public class TaskInvoker<T> {
                     tasks.clear();
                 }
             }
+        } finally {
+            cancellationLock.unlock();
         }
     }
 
@@ -216,6 +763,7 @@ public class TaskInvoker<T> {
             return Collections.emptyList();
         }
 
+        tasks.forEach(this::markDispatched);
         try {
             return executor.invokeAll(tasks);
         } catch (InterruptedException e) {
@@ -230,8 +778,19 @@ public class TaskInvoker<T> {
             return Collections.emptyList();
         }
 
+        List<InvokerCallable<T>> invokedTasks = new ArrayList<>(tasks);
+        invokedTasks.forEach(this::markDispatched);
         try {
-            return executor.invokeAll(tasks, timeout, unit);
+            List<Future<TaskValue<T>>> futures = executor.invokeAll(invokedTasks, timeout, unit);
+
+            // the tasks that have timed out are notified through their cancellation tokens
+            for (int i = 0; i < futures.size(); i++) {
+                if (futures.get(i).isCancelled()) {
+                    invokedTasks.get(i).cancel();
+                }
+            }
+
+            return futures;
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         } finally {
@@ -239,6 +798,75 @@ public class TaskInvoker<T> {
         }
     }
 
+    private List<InvokerCallable<T>> drainTasks() {
+        List<InvokerCallable<T>> drainedTasks = new ArrayList<>();
+        InvokerCallable<T> task;
+        while ((task = tasks.poll()) != null) {
+            drainedTasks.add(task);
+        }
+
+        return drainedTasks;
+    }
+
+    private TaskExecution<T> dispatch(InvokerCallable<T> task) {
+        return start(new TaskExecution<>(task));
+    }
+
+    private TaskExecution<T> start(TaskExecution<T> execution) {
+        InvokerCallable<T> task = execution.task;
+        markDispatched(task);
+        activeTasks.add(task);
+        execution.result.whenComplete((value, e) -> activeTasks.remove(task));
+
+        try {
+            execution.future = executor.submit(execution::run);
+        } catch (RejectedExecutionException e) {
+            execution.cancel();
+            throw e;
+        }
+
+        return execution;
+    }
+
+    private void markDispatched(InvokerCallable<T> task) {
+        if (listener != null) {
+            task.markDispatched(listener, System.nanoTime());
+        }
+    }
+
+    private List<TaskExecution<T>> dispatchAll(List<InvokerCallable<T>> tasks) {
+        List<TaskExecution<T>> executions = new ArrayList<>(tasks.size());
+
+        try {
+            for (InvokerCallable<T> task : tasks) {
+                executions.add(dispatch(task));
+            }
+        } catch (RuntimeException e) {
+            executions.forEach(TaskExecution::cancel);
+            throw e;
+        }
+
+        return executions;
+    }
+
+    private static <T> CompletableFuture<Void> allOf(List<TaskExecution<T>> executions) {
+        return CompletableFuture.allOf(executions.stream()
+                .map(execution -> execution.result)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private static <T> List<CompletableFuture<TaskValue<T>>> resultsOf(List<TaskExecution<T>> executions) {
+        return executions.stream()
+                .map(execution -> execution.result)
+                .collect(Collectors.toList());
+    }
+
+    private Stream<T> streamCompletions(Iterator<InvokerCallable<T>> source, int maxInFlight) {
+        CompletionIterator iterator = new CompletionIterator(source, maxInFlight);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::cancel);
+    }
+
     private static <T> T getFutureResult(Future<T> future) throws CancellationException {
         try {
             return future.get();
@@ -251,33 +879,114 @@ public class TaskInvoker<T> {
         }
     }
 
-    private static <T> List<T> completeFutures(List<Future<TaskValue<T>>> futures) {
-        return futures.stream()
-                .map(TaskInvoker::getFutureResult)
-                .filter(taskValue -> !taskValue.isVoid())
-                .flatMap(taskValue -> {
-                    if (taskValue.isSingle()) {
-                        return Stream.of(taskValue.asSingle().getValue());
-                    }
-                    if (taskValue.isMulti()) {
-                        return taskValue.asMulti().getValues().stream();
-                    }
+    private static <T> List<T> completeFutures(List<? extends Future<TaskValue<T>>> futures) {
+        List<TaskValue<T>> taskValues = new ArrayList<>(futures.size());
+        int valueCount = 0;
+        for (Future<TaskValue<T>> future : futures) {
+            TaskValue<T> taskValue = getFutureResult(future);
+            taskValues.add(taskValue);
+            valueCount += taskValue.isMulti() ? taskValue.asMulti().getValues().size() : 1;
+        }
 
-                    throw new IllegalStateException(
-                            "taskValue is an instance of an unsupported class: " + taskValue.getClass().getName());
-                })
-                .collect(Collectors.toList());
+        // the list is allocated once with the exact size instead of growing by copying
+        List<T> values = new ArrayList<>(valueCount);
+        for (TaskValue<T> taskValue : taskValues) {
+            if (taskValue.isMulti()) {
+                values.addAll(taskValue.asMulti().getValues());
+            } else if (!taskValue.isVoid()) {
+                streamValues(taskValue).forEach(values::add);
+            }
+        }
+
+        return values;
+    }
+
+    private static <T> Stream<T> streamValues(TaskValue<T> taskValue) {
+        if (taskValue.isVoid()) {
+            return Stream.empty();
+        }
+        if (taskValue.isSingle()) {
+            return Stream.of(taskValue.asSingle().getValue());
+        }
+        if (taskValue.isMulti()) {
+            return taskValue.asMulti().getValues().stream();
+        }
+        if (taskValue.isAsync()) {
+            return Stream.of(getFutureResult(taskValue.asAsync().getStage().toCompletableFuture()));
+        }
+
+        throw new IllegalStateException(
+                "taskValue is an instance of an unsupported class: " + taskValue.getClass().getName());
+    }
+
+    /**
+     * Waits until the deadline for the {@link CompletionStage}s returned by the completed asynchronous tasks,
+     * since {@link ExecutorService#invokeAll(Collection, long, TimeUnit)} only waits for the tasks to return them.
+     *
+     * @throws CancellationException If the deadline has passed. The stages that have not completed are cancelled.
+     */
+    private static <T> void awaitAsyncValues(List<Future<TaskValue<T>>> futures, long deadline) throws CancellationException {
+        List<CompletableFuture<T>> asyncResults = new ArrayList<>();
+        for (Future<TaskValue<T>> future : futures) {
+            if (!future.isDone() || future.isCancelled()) {
+                continue;
+            }
+
+            TaskValue<T> taskValue;
+            try {
+                taskValue = future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                // the failures are thrown when the results are collected
+                continue;
+            }
+
+            if (taskValue.isAsync()) {
+                asyncResults.add(taskValue.asAsync().getStage().toCompletableFuture());
+            }
+        }
+
+        if (asyncResults.isEmpty()) {
+            return;
+        }
+
+        try {
+            CompletableFuture.allOf(asyncResults.toArray(new CompletableFuture<?>[0]))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            for (CompletableFuture<T> asyncResult : asyncResults) {
+                asyncResult.cancel(true);
+            }
+
+            throw new CancellationException("The timeout has been exceeded");
+        } catch (ExecutionException | CancellationException e) {
+            // the failures are thrown when the results are collected
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private static <T> void completeFuturesVoid(List<Future<TaskValue<T>>> futures) {
-        futures.forEach(TaskInvoker::getFutureResult);
+        for (Future<TaskValue<T>> future : futures) {
+            TaskValue<T> taskValue = getFutureResult(future);
+            if (taskValue.isAsync()) {
+                getFutureResult(taskValue.asAsync().getStage().toCompletableFuture());
+            }
+        }
     }
 
-    private static class InvokerCallable<T> implements Callable<TaskValue<T>> {
-        private final Callable<TaskValue<T>> callable;
+    private static class InvokerCallable<T> implements Callable<TaskValue<T>>, CancellationToken {
+        private final ExceptionalFunction<CancellationToken, TaskValue<T>> callable;
         private final AtomicBoolean isCancelled = new AtomicBoolean(false);
+        // both are published to the executing thread by handing the task over to the executor
+        @Nullable
+        private TaskListener listener;
+        private long dispatchTime;
 
         private InvokerCallable(Callable<TaskValue<T>> callable) {
+            this.callable = cancellationToken -> callable.call();
+        }
+
+        private InvokerCallable(ExceptionalFunction<CancellationToken, TaskValue<T>> callable) {
             this.callable = callable;
         }
 
@@ -287,6 +996,12 @@ public class TaskInvoker<T> {
             });
         }
 
+        public static <T> InvokerCallable<T> ofAsync(Supplier<? extends CompletionStage<T>> supplier) {
+            return new InvokerCallable<>(() -> {
+                return new TaskValue.Async<>(Objects.requireNonNull(supplier.get(), "the task returned null instead of CompletionStage"));
+            });
+        }
+
         public static <T> InvokerCallable<T> ofRunnable(ExceptionalRunnable runnable) {
             return new InvokerCallable<>(() -> {
                 runnable.run();
@@ -294,17 +1009,289 @@ public class TaskInvoker<T> {
             });
         }
 
+        public void markDispatched(TaskListener listener, long dispatchTime) {
+            this.listener = listener;
+            this.dispatchTime = dispatchTime;
+        }
+
         public void cancel() {
             isCancelled.set(true);
         }
 
+        @Override
+        public boolean isCancelled() {
+            return isCancelled.get();
+        }
+
         @Override
         public TaskValue<T> call() throws Exception {
-            if (isCancelled.get()) {
-                throw new CancellationException("The task has been cancelled");
+            // the tasks cancelled before starting are not reported to the listener
+            throwIfCancelled();
+
+            TaskListener listener = this.listener;
+            if (listener == null) {
+                return callable.apply(this);
+            }
+
+            long startTime = System.nanoTime();
+            long queueWaitNanos = startTime - dispatchTime;
+            TaskValue<T> taskValue;
+            try {
+                taskValue = callable.apply(this);
+            } catch (Throwable e) {
+                listener.onTaskCompleted(queueWaitNanos, System.nanoTime() - startTime, e);
+                throw e;
             }
 
-            return callable.call();
+            if (taskValue.isAsync()) {
+                taskValue.asAsync().getStage().whenComplete((value, e) -> {
+                    Throwable exception = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    listener.onTaskCompleted(queueWaitNanos, System.nanoTime() - startTime, exception);
+                });
+            } else {
+                listener.onTaskCompleted(queueWaitNanos, System.nanoTime() - startTime, null);
+            }
+
+            return taskValue;
+        }
+    }
+
+    /**
+     * Iterates over the results of the dispatched tasks in the order the tasks complete.<br>
+     * New tasks are taken from the {@code source} only while there are less than {@code maxInFlight} tasks
+     * whose results have not been consumed yet.
+     */
+    private class CompletionIterator implements Iterator<T> {
+        private final Iterator<InvokerCallable<T>> source;
+        private final int maxInFlight;
+        private final BlockingQueue<TaskExecution<T>> completedExecutions = new LinkedBlockingQueue<>();
+        private final Set<TaskExecution<T>> pendingExecutions = ConcurrentHashMap.newKeySet();
+
+        private Iterator<T> values = Collections.emptyIterator();
+        private volatile boolean isCancelled;
+
+        private CompletionIterator(Iterator<InvokerCallable<T>> source, int maxInFlight) {
+            this.source = source;
+            this.maxInFlight = maxInFlight;
+            dispatchPending();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!values.hasNext()) {
+                if (pendingExecutions.isEmpty() || isCancelled) {
+                    return false;
+                }
+
+                TaskExecution<T> execution = takeCompletedExecution();
+                pendingExecutions.remove(execution);
+
+                TaskValue<T> taskValue;
+                try {
+                    taskValue = getFutureResult(execution.result);
+                } catch (RuntimeException e) {
+                    cancel();
+                    throw e;
+                }
+
+                dispatchPending();
+                values = streamValues(taskValue).iterator();
+            }
+
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return values.next();
+        }
+
+        private void cancel() {
+            isCancelled = true;
+            for (TaskExecution<T> execution : pendingExecutions) {
+                execution.cancel();
+            }
+        }
+
+        private void dispatchPending() {
+            while (!isCancelled && pendingExecutions.size() < maxInFlight && source.hasNext()) {
+                TaskExecution<T> execution = dispatch(source.next());
+                pendingExecutions.add(execution);
+                execution.result.whenComplete((value, e) -> completedExecutions.add(execution));
+            }
+        }
+
+        private TaskExecution<T> takeCompletedExecution() {
+            try {
+                return completedExecutions.take();
+            } catch (InterruptedException e) {
+                cancel();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static class HedgedCall<T> {
+        private static final int PRIMARY_ATTEMPT = 0;
+        private static final int HEDGED_ATTEMPT = 1;
+
+        private final Callable<T> task;
+        private final HedgingPolicy hedgingPolicy;
+        private final ExecutorService executor;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicReferenceArray<Future<?>> attempts = new AtomicReferenceArray<>(2);
+        private final AtomicBoolean isHedgeStarted = new AtomicBoolean(false);
+        private final AtomicInteger remainingAttempts = new AtomicInteger(2);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private long startTime;
+
+        private HedgedCall(Callable<T> task, HedgingPolicy hedgingPolicy, ExecutorService executor) {
+            this.task = task;
+            this.hedgingPolicy = hedgingPolicy;
+            this.executor = executor;
+        }
+
+        private CompletableFuture<T> start() {
+            // the latency of the task is measured from here, like the delay of the hedge
+            startTime = System.nanoTime();
+            attempts.set(PRIMARY_ATTEMPT, executor.submit(() -> attempt(PRIMARY_ATTEMPT)));
+
+            ScheduledFuture<?> hedgeTimer = SharedScheduler.getInstance()
+                    .schedule(this::startHedge, hedgingPolicy.getDelayNanos(), TimeUnit.NANOSECONDS);
+
+            result.whenComplete((value, e) -> {
+                hedgeTimer.cancel(false);
+                if (result.isCancelled()) {
+                    cancelAttempt(PRIMARY_ATTEMPT);
+                    cancelAttempt(HEDGED_ATTEMPT);
+                }
+            });
+
+            return result;
+        }
+
+        private void startHedge() {
+            if (result.isDone() || !isHedgeStarted.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                attempts.set(HEDGED_ATTEMPT, executor.submit(() -> attempt(HEDGED_ATTEMPT)));
+            } catch (RejectedExecutionException e) {
+                // the hedge is given up, so the result is provided by the primary attempt, which may have already failed
+                if (remainingAttempts.decrementAndGet() == 0) {
+                    result.completeExceptionally(failure.get());
+                }
+                return;
+            }
+            if (result.isDone()) {
+                cancelAttempt(HEDGED_ATTEMPT);
+            }
+        }
+
+        private void attempt(int attempt) {
+            try {
+                T value = task.call();
+                if (result.complete(value)) {
+                    hedgingPolicy.recordLatency(System.nanoTime() - startTime);
+                    cancelAttempt(attempt == PRIMARY_ATTEMPT ? HEDGED_ATTEMPT : PRIMARY_ATTEMPT);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+
+                // if the primary attempt fails before the hedge has been started, the hedge is not started at all
+                boolean isHedgePrevented = attempt == PRIMARY_ATTEMPT && isHedgeStarted.compareAndSet(false, true);
+                if (isHedgePrevented || remainingAttempts.decrementAndGet() == 0) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }
+
+        private void cancelAttempt(int attempt) {
+            Future<?> future = attempts.get(attempt);
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static class TaskExecution<T> {
+        private final InvokerCallable<T> task;
+        private final CompletableFuture<TaskValue<T>> result = new CompletableFuture<>();
+        private final AtomicBoolean isStarted = new AtomicBoolean(false);
+        @Nullable
+        private final LongAdder runTimeNanos;
+        private volatile Future<?> future;
+        private volatile CompletableFuture<T> asyncResult;
+
+        private TaskExecution(InvokerCallable<T> task) {
+            this(task, null);
+        }
+
+        private TaskExecution(InvokerCallable<T> task, @Nullable LongAdder runTimeNanos) {
+            this.task = task;
+            this.runTimeNanos = runTimeNanos;
+        }
+
+        /**
+         * Executes the task unless it has already been started by another thread.
+         */
+        private void run() {
+            if (!isStarted.compareAndSet(false, true)) {
+                return;
+            }
+
+            long startTime = runTimeNanos == null ? 0 : System.nanoTime();
+            try {
+                TaskValue<T> taskValue = task.call();
+                if (taskValue.isAsync()) {
+                    completeAsync(taskValue.asAsync().getStage().toCompletableFuture());
+                } else {
+                    result.complete(taskValue);
+                }
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                if (runTimeNanos != null) {
+                    runTimeNanos.add(System.nanoTime() - startTime);
+                }
+            }
+        }
+
+        private void completeAsync(CompletableFuture<T> asyncResult) {
+            this.asyncResult = asyncResult;
+            asyncResult.whenComplete((value, e) -> {
+                if (e == null) {
+                    result.complete(new TaskValue.Single<>(value));
+                } else if (e instanceof CompletionException && e.getCause() != null) {
+                    result.completeExceptionally(e.getCause());
+                } else {
+                    result.completeExceptionally(e);
+                }
+            });
+
+            if (result.isCancelled()) {
+                asyncResult.cancel(true);
+            }
+        }
+
+        private void cancel() {
+            task.cancel();
+            result.cancel(false);
+
+            Future<?> future = this.future;
+            if (future != null) {
+                future.cancel(true);
+            }
+
+            CompletableFuture<T> asyncResult = this.asyncResult;
+            if (asyncResult != null) {
+                asyncResult.cancel(true);
+            }
         }
     }
 
@@ -329,6 +1316,14 @@ public class TaskInvoker<T> {
             throw new UnsupportedOperationException();
         }
 
+        default boolean isAsync() {
+            return false;
+        }
+
+        default Async<T> asAsync() throws UnsupportedOperationException {
+            throw new UnsupportedOperationException();
+        }
+
         class Void<T> implements TaskValue<T> {
             private Void() { }
 
@@ -389,5 +1384,27 @@ public class TaskInvoker<T> {
                 return this;
             }
         }
+
+        class Async<T> implements TaskValue<T> {
+            private final CompletionStage<T> stage;
+
+            private Async(CompletionStage<T> stage) {
+                this.stage = stage;
+            }
+
+            public CompletionStage<T> getStage() {
+                return stage;
+            }
+
+            @Override
+            public boolean isAsync() {
+                return true;
+            }
+
+            @Override
+            public Async<T> asAsync() {
+                return this;
+            }
+        }
     }
 }
@@ -0,0 +1,26 @@
+package dev.b37.mgutils.concurrent;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Receives the measurements of every task executed by a {@link TaskInvoker}.<br>
+ * The listener is called by the threads executing the tasks, so it must be thread-safe, fast, and must not throw exceptions.
+ *
+ * @see TaskInvoker#TaskInvoker(java.util.concurrent.ExecutorService, TaskListener)
+ * @see TaskStatistics
+ * @since 3.7.0
+ */
+@FunctionalInterface
+public interface TaskListener {
+    /**
+     * Called once a task has completed, successfully or not.<br>
+     * The tasks that have been cancelled before starting are not reported.
+     *
+     * @param queueWaitNanos The time between handing the task over to the executor and starting it.
+     *                       A long wait means that the executor is saturated.
+     * @param runTimeNanos   The time between starting the task and its completion.
+     *                       For asynchronous tasks it includes the time until their {@link java.util.concurrent.CompletionStage} is completed.
+     * @param exception      The exception the task has failed with, {@code null} if the task has completed successfully.
+     */
+    void onTaskCompleted(long queueWaitNanos, long runTimeNanos, @Nullable Throwable exception);
+}
@@ -0,0 +1,108 @@
+package dev.b37.mgutils.concurrent;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the measurements of the tasks: the number of completed and failed tasks,
+ * and the averages and percentiles of the queue wait time and the run time.<br>
+ * Comparing the queue wait time to the run time shows whether the tasks are slow or the executor is too small for them.<br><br>
+ * Usage example:
+ * <pre>{@code
+ * TaskStatistics statistics = new TaskStatistics();
+ * TaskInvoker<String> invoker = new TaskInvoker<>(executor, statistics);
+ * ...
+ * long p99QueueWait = statistics.getQueueWaitPercentile(99, TimeUnit.MILLISECONDS);
+ * }</pre>
+ * The percentiles are approximate, with a relative error of at most 12.5%.
+ *
+ * @since 3.7.0
+ */
+public class TaskStatistics implements TaskListener {
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+    private final LongAdder totalRunTimeNanos = new LongAdder();
+    private final LatencyHistogram queueWaitHistogram = new LatencyHistogram();
+    private final LatencyHistogram runTimeHistogram = new LatencyHistogram();
+
+    @Override
+    public void onTaskCompleted(long queueWaitNanos, long runTimeNanos, @Nullable Throwable exception) {
+        completedCount.increment();
+        if (exception != null) {
+            failedCount.increment();
+        }
+
+        totalQueueWaitNanos.add(queueWaitNanos);
+        totalRunTimeNanos.add(runTimeNanos);
+        queueWaitHistogram.record(queueWaitNanos);
+        runTimeHistogram.record(runTimeNanos);
+    }
+
+    /**
+     * @return The number of the completed tasks, including the failed ones.
+     */
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getAverageQueueWait(TimeUnit unit) {
+        return unit.convert(average(totalQueueWaitNanos), TimeUnit.NANOSECONDS);
+    }
+
+    public long getAverageRunTime(TimeUnit unit) {
+        return unit.convert(average(totalRunTimeNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100, e.g. {@code 99}.
+     */
+    public long getQueueWaitPercentile(double percentile, TimeUnit unit) {
+        return unit.convert(queueWaitHistogram.getPercentile(percentile), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100, e.g. {@code 99}.
+     */
+    public long getRunTimePercentile(double percentile, TimeUnit unit) {
+        return unit.convert(runTimeHistogram.getPercentile(percentile), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Clears all the measurements.<br>
+     * The tasks completing concurrently with the reset may be partially counted.
+     */
+    public void reset() {
+        completedCount.reset();
+        failedCount.reset();
+        totalQueueWaitNanos.reset();
+        totalRunTimeNanos.reset();
+        queueWaitHistogram.reset();
+        runTimeHistogram.reset();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("completedCount", getCompletedCount())
+                .append("failedCount", getFailedCount())
+                .append("averageQueueWaitMicros", getAverageQueueWait(TimeUnit.MICROSECONDS))
+                .append("p99QueueWaitMicros", getQueueWaitPercentile(99, TimeUnit.MICROSECONDS))
+                .append("averageRunTimeMicros", getAverageRunTime(TimeUnit.MICROSECONDS))
+                .append("p99RunTimeMicros", getRunTimePercentile(99, TimeUnit.MICROSECONDS))
+                .toString();
+    }
+
+    private long average(LongAdder total) {
+        long count = completedCount.sum();
+        return count == 0 ? 0 : total.sum() / count;
+    }
+}
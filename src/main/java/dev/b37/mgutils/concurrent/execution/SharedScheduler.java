@@ -0,0 +1,36 @@
+package dev.b37.mgutils.concurrent.execution;
+
+import dev.b37.mgutils.concurrent.Lazy;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Provides a {@link ScheduledExecutorService} shared by the library to perform actions after a delay.<br>
+ * It's backed by a single daemon thread, so the scheduled actions must be short:
+ * they are expected to hand the actual work over to another executor.<br>
+ * The returned scheduler can't be shut down.
+ *
+ * @since 3.7.0
+ */
+public final class SharedScheduler {
+    private static final Lazy<ScheduledExecutorService> instance = new Lazy<>(SharedScheduler::createScheduler);
+
+    private SharedScheduler() { }
+
+    public static ScheduledExecutorService getInstance() {
+        return instance.get();
+    }
+
+    private static ScheduledExecutorService createScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "mgutils-shared-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+
+        return Executors.unconfigurableScheduledExecutorService(scheduler);
+    }
+}
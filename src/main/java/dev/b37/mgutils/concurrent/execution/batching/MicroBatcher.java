@@ -0,0 +1,254 @@
+package dev.b37.mgutils.concurrent.execution.batching;
+
+import dev.b37.mgutils.concurrent.execution.SharedScheduler;
+import dev.b37.mgutils.delegate.ExceptionalConsumer;
+import dev.b37.mgutils.delegate.MultiConsumer;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Accepts items one by one from any number of threads and passes them to the {@code handler} in batches,
+ * e.g. to turn single-row writes into bulk writes.<br>
+ * A batch is handed over to the executor once it has {@code maxBatchSize} items,
+ * or once {@code maxDelay} has passed since its first item was accepted, whichever comes first.<br><br>
+ * Usage example:
+ * <pre>{@code
+ * try (MicroBatcher<Row> batcher = new MicroBatcher<>(executor, 500, 10, TimeUnit.MILLISECONDS, rows -> repository.insertAll(rows))) {
+ *     rows.parallelStream().forEach(batcher);
+ * }
+ * }</pre>
+ * The batches may be handled concurrently, in no particular order.
+ * The failures of the {@code handler} are reported through the futures returned by {@link #submit} and logged.
+ *
+ * @param <T> The type of the items.
+ * @since 3.7.0
+ */
+public class MicroBatcher<T> implements MultiConsumer<T>, AutoCloseable {
+    private static final int MAX_INITIAL_BATCH_CAPACITY = 1024;
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final ExecutorService executor;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ExceptionalConsumer<List<T>> handler;
+
+    private final Lock lock = new ReentrantLock();
+    private final Set<CompletableFuture<Void>> pendingBatches = ConcurrentHashMap.newKeySet();
+    // guarded by the lock
+    private Batch<T> currentBatch;
+    private boolean isClosed;
+
+    /**
+     * @param maxBatchSize The maximum number of items in a batch. Must be positive.
+     * @param maxDelay     The maximum time an item waits for its batch to fill up.
+     * @param handler      Handles a batch. Called by the executor's threads.
+     */
+    public MicroBatcher(ExecutorService executor, int maxBatchSize, long maxDelay, TimeUnit unit, ExceptionalConsumer<List<T>> handler) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive but equals to " + maxBatchSize);
+        }
+
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.handler = handler;
+    }
+
+    /**
+     * Adds the {@code item} to the current batch.
+     *
+     * @throws IllegalStateException If the batcher is closed.
+     */
+    @Override
+    public void accept(T item) {
+        submit(item);
+    }
+
+    /**
+     * Adds the {@code items} to the current batch, handing over as many full batches as they fill up.
+     *
+     * @throws IllegalStateException If the batcher is closed.
+     */
+    @Override
+    public void acceptAll(Collection<T> items) {
+        for (T item : items) {
+            submit(item);
+        }
+    }
+
+    /**
+     * Adds the {@code item} to the current batch.
+     *
+     * @return The future completed once the batch containing the item has been handled. It's shared by all the items of the batch.
+     * @throws IllegalStateException If the batcher is closed.
+     */
+    public CompletableFuture<Void> submit(T item) {
+        Batch<T> fullBatch = null;
+        CompletableFuture<Void> completion;
+
+        lock.lock();
+        try {
+            if (isClosed) {
+                throw new IllegalStateException("the batcher is closed");
+            }
+
+            Batch<T> batch = currentBatch;
+            if (batch == null) {
+                batch = currentBatch = new Batch<>(maxBatchSize);
+                Batch<T> scheduledBatch = batch;
+                batch.timer = SharedScheduler.getInstance().schedule(() -> flush(scheduledBatch), maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+
+            batch.items.add(item);
+            completion = batch.completion;
+
+            if (batch.items.size() >= maxBatchSize) {
+                fullBatch = takeCurrentBatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+
+        return completion;
+    }
+
+    /**
+     * Hands over the current batch to the executor without waiting for it to fill up.
+     */
+    public void flush() {
+        Batch<T> batch;
+
+        lock.lock();
+        try {
+            batch = takeCurrentBatch();
+        } finally {
+            lock.unlock();
+        }
+
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Hands over the current batch to the executor and waits until all the batches have been handled.<br>
+     * The items can't be accepted afterward. The executor is not shut down.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            isClosed = true;
+        } finally {
+            lock.unlock();
+        }
+
+        flush();
+
+        for (CompletableFuture<Void> pendingBatch : pendingBatches) {
+            try {
+                pendingBatch.join();
+            } catch (RuntimeException ignored) {
+                // the failure has been logged
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("maxBatchSize", maxBatchSize)
+                .append("maxDelayNanos", maxDelayNanos)
+                .append("pendingBatches", pendingBatches.size())
+                .toString();
+    }
+
+    /**
+     * Called by the timer once the maximum delay of the {@code batch} has passed, unless it has already been handed over.
+     */
+    private void flush(Batch<T> batch) {
+        lock.lock();
+        try {
+            if (currentBatch != batch) {
+                return;
+            }
+
+            currentBatch = null;
+            addPending(batch);
+        } finally {
+            lock.unlock();
+        }
+
+        dispatch(batch);
+    }
+
+    private Batch<T> takeCurrentBatch() {
+        Batch<T> batch = currentBatch;
+        if (batch != null) {
+            currentBatch = null;
+            batch.timer.cancel(false);
+            addPending(batch);
+        }
+
+        return batch;
+    }
+
+    /**
+     * Called while holding the lock when the {@code batch} stops being the current one,
+     * so {@link #close()} waits for it even if it hasn't been handed over to the executor yet.
+     */
+    private void addPending(Batch<T> batch) {
+        CompletableFuture<Void> completion = batch.completion;
+        pendingBatches.add(completion);
+        completion.whenComplete((ignored, e) -> pendingBatches.remove(completion));
+    }
+
+    private void dispatch(Batch<T> batch) {
+        try {
+            executor.execute(() -> handle(batch));
+        } catch (RejectedExecutionException e) {
+            batch.completion.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void handle(Batch<T> batch) {
+        try {
+            handler.accept(batch.items);
+            batch.completion.complete(null);
+        } catch (Throwable e) {
+            log.warn("failed to handle a batch of {} items", batch.items.size(), e);
+            batch.completion.completeExceptionally(e);
+        }
+    }
+
+    private static class Batch<T> {
+        private final List<T> items;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private ScheduledFuture<?> timer;
+
+        private Batch(int maxSize) {
+            this.items = new ArrayList<>(Math.min(maxSize, MAX_INITIAL_BATCH_CAPACITY));
+        }
+    }
+}
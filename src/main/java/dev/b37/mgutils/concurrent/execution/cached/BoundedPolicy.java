@@ -0,0 +1,247 @@
+package dev.b37.mgutils.concurrent.execution.cached;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides which invocations to evict once the total weight of the cached invocations exceeds the maximum,
+ * approximating the W-TinyLFU policy:
+ * <ul>
+ *     <li>new entries are placed into a small LRU window, so the recent bursts are not evicted immediately;</li>
+ *     <li>the entries leaving the window compete with the least recently used entry of the probation segment,
+ *     and the one that has been accessed less frequently according to the {@link FrequencySketch} is evicted,
+ *     which keeps one-off scans from flushing the frequently used entries;</li>
+ *     <li>the probation entries that are accessed again are promoted to the protected segment.</li>
+ * </ul>
+ * All the bookkeeping is O(1) and guarded by a single lock, but the readers never wait for it:
+ * the reads are recorded into a lossy ring buffer, which is replayed by the thread that manages to acquire the lock.
+ * The writes are rarer, as they mean starting a new invocation, so they acquire the lock directly.<br>
+ * Every change of the cached invocations is followed by a call of the policy, and the policy only tracks the invocations
+ * that are still cached when it handles the call, so the calls made in a different order than the changes don't leave
+ * the removed invocations tracked or the cached ones untracked.
+ * @since 3.7.0
+ */
+class BoundedPolicy {
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_DRAIN_INTERVAL = 32;
+    private static final int MAX_SKETCH_KEY_COUNT = 1 << 22;
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final ConcurrentMap<Object, CachedInvocation<?>> invocations;
+
+    private final AtomicReferenceArray<Object> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readCount = new AtomicLong();
+
+    // guarded by the lock
+    private final Lock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Map<Object, Node> nodes = new HashMap<>();
+    private final Node[] segments = {new Node(), new Node(), new Node()};
+    private final long[] segmentWeights = new long[3];
+    private long totalWeight;
+
+    /**
+     * @param maximum     The maximum total weight of the entries.
+     * @param invocations The cached invocations, from which the evicted ones are removed.
+     */
+    public BoundedPolicy(long maximum, int expectedKeyCount, ConcurrentMap<Object, CachedInvocation<?>> invocations) {
+        this.maximum = maximum;
+        this.windowMaximum = Math.max(1, (long) (maximum * WINDOW_RATIO));
+        this.protectedMaximum = (long) ((maximum - windowMaximum) * PROTECTED_RATIO);
+        this.invocations = invocations;
+        this.sketch = new FrequencySketch(Math.min(expectedKeyCount, MAX_SKETCH_KEY_COUNT));
+    }
+
+    /**
+     * Records the access of the entry without blocking. Some accesses may be dropped if the buffer is full.
+     */
+    public void recordRead(Object key) {
+        long index = readCount.getAndIncrement();
+        readBuffer.lazySet((int) (index & (READ_BUFFER_SIZE - 1)), key);
+
+        if ((index & (READ_DRAIN_INTERVAL - 1)) == 0 && lock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Records the new invocation of the key, or the new weight of the invocation, evicting the entries if needed.<br>
+     * Ignored if the invocation is not cached anymore.
+     */
+    public void recordWrite(Object key, CachedInvocation<?> invocation, long weight) {
+        lock.lock();
+        try {
+            if (invocations.get(key) != invocation) {
+                // the invocation has been removed or replaced, whose removal or replacement is recorded by another call
+                return;
+            }
+
+            drainReads();
+            sketch.increment(key);
+
+            Node node = nodes.get(key);
+            if (node == null) {
+                node = new Node(key, invocation, weight);
+                nodes.put(key, node);
+                linkLast(WINDOW, node);
+            } else {
+                if (node.invocation != invocation) {
+                    node.invocation = invocation;
+                } else if (node.weight == weight) {
+                    return;
+                }
+
+                segmentWeights[node.segment] += weight - node.weight;
+                totalWeight += weight - node.weight;
+                node.weight = weight;
+                onAccess(node);
+            }
+
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets the entry if it's still the given invocation of the key.
+     */
+    public void recordRemoval(Object key, CachedInvocation<?> invocation) {
+        lock.lock();
+        try {
+            Node node = nodes.get(key);
+            if (node != null && node.invocation == invocation) {
+                nodes.remove(key);
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drainReads() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            Object key = readBuffer.getAndSet(i, null);
+            if (key == null) {
+                continue;
+            }
+
+            sketch.increment(key);
+            Node node = nodes.get(key);
+            if (node != null) {
+                onAccess(node);
+            }
+        }
+    }
+
+    private void onAccess(Node node) {
+        if (node.segment == PROBATION) {
+            unlink(node);
+            linkLast(PROTECTED, node);
+
+            // the protected segment overflows to the probation one
+            while (segmentWeights[PROTECTED] > protectedMaximum) {
+                Node demoted = segments[PROTECTED].next;
+                unlink(demoted);
+                linkLast(PROBATION, demoted);
+            }
+        } else {
+            unlink(node);
+            linkLast(node.segment, node);
+        }
+    }
+
+    private void evict() {
+        // the window overflows to the probation segment
+        while (segmentWeights[WINDOW] > windowMaximum) {
+            Node candidate = segments[WINDOW].next;
+            unlink(candidate);
+            linkLast(PROBATION, candidate);
+        }
+
+        while (totalWeight > maximum) {
+            Node victim = firstOf(PROBATION);
+            if (victim == null) {
+                victim = firstOf(WINDOW) != null ? firstOf(WINDOW) : firstOf(PROTECTED);
+            } else {
+                // the most recent probation entry has just left the window, and it's admitted only if it's used more often
+                Node candidate = segments[PROBATION].prev;
+                if (candidate != victim && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                    victim = candidate;
+                }
+            }
+
+            nodes.remove(victim.key);
+            unlink(victim);
+            invocations.remove(victim.key, victim.invocation);
+        }
+    }
+
+    private Node firstOf(int segment) {
+        Node head = segments[segment];
+        return head.next == head ? null : head.next;
+    }
+
+    private void linkLast(int segment, Node node) {
+        Node head = segments[segment];
+        node.segment = segment;
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+
+        segmentWeights[segment] += node.weight;
+        totalWeight += node.weight;
+    }
+
+    private void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+
+        segmentWeights[node.segment] -= node.weight;
+        totalWeight -= node.weight;
+    }
+
+    private static class Node {
+        private final Object key;
+        private CachedInvocation<?> invocation;
+        private long weight;
+        private int segment;
+        private Node prev;
+        private Node next;
+
+        /**
+         * Creates the head of a segment's circular list.
+         */
+        private Node() {
+            this.key = null;
+            this.prev = this;
+            this.next = this;
+        }
+
+        private Node(Object key, CachedInvocation<?> invocation, long weight) {
+            this.key = key;
+            this.invocation = invocation;
+            this.weight = weight;
+        }
+    }
+}
@@ -13,6 +13,15 @@ public class CachedInvocation<T> implements AutoCloseable {
 
     private final AtomicBoolean isInvalidated = new AtomicBoolean(false);
 
+    // written before isExpiring, so it's visible once isExpiring is read as true
+    private long expirationTime;
+    private volatile boolean isExpiring;
+
+    // written before isRefreshScheduled, so it's visible once isRefreshScheduled is read as true
+    private long refreshTime;
+    private volatile boolean isRefreshScheduled;
+    private final AtomicBoolean isRefreshing = new AtomicBoolean(false);
+
     public CachedInvocation(CompletableFuture<T> future, Runnable invalidate) {
         this.future = future;
         this.invalidate = invalidate;
@@ -53,6 +62,44 @@ public class CachedInvocation<T> implements AutoCloseable {
         }
     }
 
+    /**
+     * @return {@code true} if the time-to-live of the result has passed.
+     * @since 3.7.0
+     */
+    public boolean isExpired() {
+        return isExpiring && System.nanoTime() - expirationTime >= 0;
+    }
+
+    /**
+     * Makes the invocation expire once the {@code ttlNanos} has passed from now.
+     */
+    void expireAfter(long ttlNanos) {
+        expirationTime = System.nanoTime() + ttlNanos;
+        isExpiring = true;
+    }
+
+    /**
+     * Makes the invocation due to be refreshed once the {@code refreshNanos} has passed from now.
+     */
+    void refreshAfter(long refreshNanos) {
+        refreshTime = System.nanoTime() + refreshNanos;
+        isRefreshScheduled = true;
+    }
+
+    /**
+     * @return {@code true} if the invocation is due to be refreshed, and the current thread is the one to start the refresh.
+     */
+    boolean tryStartRefresh() {
+        return isRefreshScheduled && System.nanoTime() - refreshTime >= 0 && isRefreshing.compareAndSet(false, true);
+    }
+
+    /**
+     * Lets the next {@link #tryStartRefresh()} start the refresh again.
+     */
+    void cancelRefresh() {
+        isRefreshing.set(false);
+    }
+
     @Override
     public void close() {
         // if isInvalidated is false then set it to true and invalidate.run()
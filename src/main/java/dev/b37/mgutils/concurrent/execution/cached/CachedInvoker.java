@@ -1,17 +1,28 @@
 package dev.b37.mgutils.concurrent.execution.cached;
 
+import dev.b37.mgutils.common.Reference;
 import dev.b37.mgutils.delegate.DefaultRunnableFactory;
 import dev.b37.mgutils.delegate.RunnableFactory;
 import dev.b37.mgutils.logging.ScopedLogger;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.NOPLogger;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongBiFunction;
 
 /**
+ * Shares the results of the invocations with the same hash between the callers.<br>
+ * By default, an invocation is shared only until it's closed.
+ * The invokers created by {@link #builder(ExecutorService)} can also retain the results for a time-to-live
+ * and bound the number (or the total weight) of the retained results.
+ *
  * @since 1.1
  */
 public class CachedInvoker {
@@ -21,15 +32,61 @@ public class CachedInvoker {
 
     private final ExecutorService executor;
     private final ConcurrentHashMap<Object, CachedInvocation<?>> invocations = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final long refreshNanos;
+    private final boolean isCallerRuns;
+    @Nullable
+    private final BoundedPolicy policy;
+    @Nullable
+    private final ToLongBiFunction<Object, Object> weigher;
 
     public CachedInvoker(ExecutorService executor) {
-        this.executor = executor;
+        this(builder(executor));
+    }
+
+    /**
+     * Creates an invoker that caches the successful results for the {@code ttl} after their invocations have completed.
+     * Until then, the calls with the same hash are served the cached result instead of starting a new invocation,
+     * even if the invocation has been closed.<br>
+     * The failed invocations are not cached.
+     *
+     * @param ttl The time-to-live of the results. If it's not positive, the results are only shared until the invocation is closed.
+     * @since 3.7.0
+     */
+    public CachedInvoker(ExecutorService executor, long ttl, TimeUnit unit) {
+        this(builder(executor).ttl(ttl, unit));
+    }
+
+    private CachedInvoker(Builder builder) {
+        this.executor = builder.executor;
+        this.ttlNanos = builder.ttlNanos;
+        this.refreshNanos = builder.refreshNanos;
+        this.isCallerRuns = builder.isCallerRuns;
+        this.weigher = builder.weigher;
+        this.policy = builder.maximum < 0 ? null : new BoundedPolicy(builder.maximum, builder.expectedKeyCount(), invocations);
+    }
+
+    /**
+     * Creates a builder of an invoker retaining the results of the invocations.
+     *
+     * @since 3.7.0
+     */
+    public static Builder builder(ExecutorService executor) {
+        return new Builder(executor);
     }
 
     public <T> T invokeOnce(Object hash, Callable<T> supplier) {
         return invokeOnce(hash, supplier, DEFAULT_RUNNABLE_FACTORY);
     }
 
+    /**
+     * @see #invoke(Object, Callable, long, TimeUnit)
+     * @since 3.7.0
+     */
+    public <T> T invokeOnce(Object hash, Callable<T> supplier, long ttl, TimeUnit unit) {
+        return invoke(hash, supplier, ttl, unit).getOnce();
+    }
+
     public <T> T invokeOnce(Object hash, Callable<T> supplier, RunnableFactory runnableFactory) {
         CachedInvocation<T> invocation = invoke(hash, supplier, runnableFactory);
         return invocation.getOnce();
@@ -39,6 +96,14 @@ public class CachedInvoker {
         return invokeOnceAsync(hash, supplier, DEFAULT_RUNNABLE_FACTORY);
     }
 
+    /**
+     * @see #invoke(Object, Callable, long, TimeUnit)
+     * @since 3.7.0
+     */
+    public <T> CompletableFuture<T> invokeOnceAsync(Object hash, Callable<T> supplier, long ttl, TimeUnit unit) {
+        return invoke(hash, supplier, ttl, unit).getOnceAsync();
+    }
+
     public <T> CompletableFuture<T> invokeOnceAsync(Object hash, Callable<T> supplier, RunnableFactory runnableFactory) {
         CachedInvocation<T> invocation = invoke(hash, supplier, runnableFactory);
         return invocation.getOnceAsync();
@@ -48,16 +113,80 @@ public class CachedInvoker {
         return invoke(hash, supplier, DEFAULT_RUNNABLE_FACTORY);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Returns the invocation cached by the {@code hash}, or starts a new one using the {@code supplier}.<br>
+     * The {@code ttl} applies only if a new invocation is started by this call.
+     *
+     * @see Builder#ttl(long, TimeUnit)
+     * @since 3.7.0
+     */
+    public <T> CachedInvocation<T> invoke(Object hash, Callable<T> supplier, long ttl, TimeUnit unit) {
+        return invoke(hash, supplier, DEFAULT_RUNNABLE_FACTORY, unit.toNanos(ttl));
+    }
+
     public <T> CachedInvocation<T> invoke(Object hash, Callable<T> supplier, RunnableFactory runnableFactory) {
-        Logger logger = ScopedLogger.of(log, "CachedInvoker#invoke(" + hash + ")");
+        return invoke(hash, supplier, runnableFactory, ttlNanos);
+    }
+
+    /**
+     * @return The number of the cached invocations, including the ones still in progress and the expired ones not removed yet.
+     * @since 3.7.0
+     */
+    public int size() {
+        return invocations.size();
+    }
+
+    /**
+     * Removes the invocation cached by the {@code hash}, so the next call starts a new one.
+     *
+     * @since 3.7.0
+     */
+    public void invalidate(Object hash) {
+        CachedInvocation<?> invocation = invocations.remove(hash);
+        if (invocation != null && policy != null) {
+            policy.recordRemoval(hash, invocation);
+        }
+    }
+
+    /**
+     * Removes all the invocations whose time-to-live has passed.<br>
+     * The expired invocations are replaced anyway once they are requested again,
+     * so it's only needed to free the memory taken by the results that are not requested anymore.
+     *
+     * @since 3.7.0
+     */
+    public void cleanUp() {
+        invocations.forEach((hash, invocation) -> {
+            if (invocation.isExpired()) {
+                remove(hash, invocation);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CachedInvocation<T> invoke(Object hash, Callable<T> supplier, RunnableFactory runnableFactory, long ttlNanos) {
+        // the cached invocations are looked up without locking and allocating first, which is the most frequent case
+        CachedInvocation<T> existingInvocation = (CachedInvocation<T>) invocations.get(hash);
+        if (existingInvocation != null && !existingInvocation.isExpired()) {
+            onHit(hash, existingInvocation, supplier, runnableFactory, ttlNanos);
+            return existingInvocation;
+        }
+
+        Logger logger = loggerOf(hash);
+
+        // the new invocation is submitted outside of compute not to hold the map's lock (which also pins virtual threads)
+        Reference<Runnable> newInvocationTask = new Reference<>();
+
+        CachedInvocation<T> invocation = (CachedInvocation<T>) invocations.compute(hash, (k, cachedInvocation) -> {
+            if (cachedInvocation != null && !cachedInvocation.isExpired()) {
+                return cachedInvocation;
+            }
 
-        return (CachedInvocation<T>) invocations.computeIfAbsent(hash, k -> {
             logger.trace("starting new invocation");
 
             CompletableFuture<T> newFuture = new CompletableFuture<T>();
 
-            executor.submit(runnableFactory.create(() -> {
+            newInvocationTask.set(runnableFactory.create(() -> {
                 logger.trace("started new invocation");
 
                 boolean isSuccess = true;
@@ -74,10 +203,250 @@ public class CachedInvoker {
                 }
             }));
 
+            if (isRetaining(ttlNanos)) {
+                // the result is kept until it expires or is evicted, no matter whether the invocation is closed
+                return new CachedInvocation<>(newFuture, () -> { });
+            }
+
             return new CachedInvocation<>(newFuture, () -> {
                 invocations.remove(hash);
                 logger.trace("invalidated the cached invocation");
             });
         });
+
+        if (newInvocationTask.get() == null) {
+            onHit(hash, invocation, supplier, runnableFactory, ttlNanos);
+            return invocation;
+        }
+
+        if (policy != null) {
+            // the weight of a result is unknown until the invocation completes
+            policy.recordWrite(hash, invocation, weigher == null ? 1 : 0);
+        }
+
+        if (isRetaining(ttlNanos)) {
+            invocation.future().whenComplete((result, e) -> {
+                if (e != null) {
+                    // the failures are not cached
+                    remove(hash, invocation);
+                    logger.trace("invalidated the failed cached invocation");
+                    return;
+                }
+
+                retain(hash, invocation, result, ttlNanos);
+            });
+        }
+
+        if (isCallerRuns) {
+            // the map's lock is not held here, so the concurrent callers only wait for the invocation's future
+            newInvocationTask.get().run();
+        } else {
+            try {
+                executor.submit(newInvocationTask.get());
+            } catch (RejectedExecutionException e) {
+                // the invocation is already cached, so the callers waiting for it are released and the next call starts a new one
+                invocation.future().completeExceptionally(e);
+                remove(hash, invocation);
+                logger.trace("failed to start the new invocation", e);
+                throw e;
+            }
+        }
+
+        return invocation;
+    }
+
+    private <T> void onHit(Object hash, CachedInvocation<T> invocation, Callable<T> supplier, RunnableFactory runnableFactory, long ttlNanos) {
+        if (policy != null) {
+            policy.recordRead(hash);
+        }
+        if (refreshNanos > 0 && invocation.tryStartRefresh()) {
+            refresh(hash, invocation, supplier, runnableFactory, ttlNanos, loggerOf(hash));
+        }
+    }
+
+    /**
+     * @return The logger scoped to the invocation, or a no-op one if the tracing is disabled,
+     * so the scope name isn't built (and the hash isn't converted to a string) in vain.
+     */
+    private Logger loggerOf(Object hash) {
+        if (!log.isTraceEnabled()) {
+            return NOPLogger.NOP_LOGGER;
+        }
+
+        return ScopedLogger.of(log, "CachedInvoker#invoke(" + hash + ")");
+    }
+
+    /**
+     * Invokes the {@code supplier} in the background and replaces the stale {@code invocation} with the result,
+     * while the stale result is still served to the callers.
+     */
+    private <T> void refresh(Object hash, CachedInvocation<T> invocation, Callable<T> supplier,
+                             RunnableFactory runnableFactory, long ttlNanos, Logger logger) {
+        logger.trace("refreshing the cached invocation");
+
+        Runnable refreshTask = runnableFactory.create(() -> {
+            T result;
+            try {
+                result = supplier.call();
+            } catch (Throwable e) {
+                // the stale result is kept, and the next call retries the refresh
+                invocation.cancelRefresh();
+                logger.trace("failed to refresh the cached invocation", e);
+                return;
+            }
+
+            CachedInvocation<T> refreshedInvocation = new CachedInvocation<>(CompletableFuture.completedFuture(result), () -> { });
+            if (!invocations.replace(hash, invocation, refreshedInvocation)) {
+                // the stale invocation has been evicted or invalidated meanwhile
+                return;
+            }
+
+            if (policy != null) {
+                policy.recordWrite(hash, refreshedInvocation, weigher == null ? 1 : 0);
+            }
+            retain(hash, refreshedInvocation, result, ttlNanos);
+            logger.trace("refreshed the cached invocation");
+        });
+
+        try {
+            executor.submit(refreshTask);
+        } catch (RejectedExecutionException e) {
+            // the stale result is still valid to serve
+            invocation.cancelRefresh();
+            logger.trace("failed to start refreshing the cached invocation", e);
+        }
+    }
+
+    private <T> void retain(Object hash, CachedInvocation<T> invocation, T result, long ttlNanos) {
+        if (ttlNanos > 0) {
+            invocation.expireAfter(ttlNanos);
+        }
+        if (refreshNanos > 0) {
+            invocation.refreshAfter(refreshNanos);
+        }
+        if (policy != null && weigher != null) {
+            long weight = weigher.applyAsLong(hash, result);
+            if (weight < 0) {
+                // the policy can't account for the result, so it's not cached
+                remove(hash, invocation);
+                throw new IllegalArgumentException("weight must not be negative but equals to " + weight);
+            }
+
+            policy.recordWrite(hash, invocation, weight);
+        }
+    }
+
+    private boolean isRetaining(long ttlNanos) {
+        return ttlNanos > 0 || refreshNanos > 0 || policy != null;
+    }
+
+    private void remove(Object hash, CachedInvocation<?> invocation) {
+        if (invocations.remove(hash, invocation) && policy != null) {
+            policy.recordRemoval(hash, invocation);
+        }
+    }
+
+    /**
+     * Configures an invoker retaining the results of the invocations.<br>
+     * If neither the time-to-live nor the maximum size is set, the results are only shared until the invocation is closed.
+     *
+     * @since 3.7.0
+     */
+    public static class Builder {
+        private static final int DEFAULT_EXPECTED_KEY_COUNT = 1024;
+
+        private final ExecutorService executor;
+        private long ttlNanos;
+        private long refreshNanos;
+        private boolean isCallerRuns;
+        private long maximum = -1;
+        @Nullable
+        private ToLongBiFunction<Object, Object> weigher;
+
+        private Builder(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        /**
+         * Retains the successful results for the {@code ttl} after their invocations have completed.
+         * Until then, the calls with the same hash are served the retained result instead of starting a new invocation,
+         * even if the invocation has been closed.<br>
+         * The failed invocations are not retained.
+         *
+         * @param ttl The time-to-live of the results. If it's not positive, the results don't expire.
+         */
+        public Builder ttl(long ttl, TimeUnit unit) {
+            this.ttlNanos = Math.max(0, unit.toNanos(ttl));
+            return this;
+        }
+
+        /**
+         * Refreshes the retained results in the background once the {@code refreshAfter} has passed after their invocations have completed.
+         * Until the refreshed result is ready, the callers are served the stale result without waiting,
+         * so the callers requesting the result steadily never wait for the invocation.<br>
+         * The refresh is started by the first call after the {@code refreshAfter} has passed, using the supplier passed to that call.
+         * If the refresh fails, the stale result is kept, and the next call starts another refresh.<br>
+         * To be effective, the {@code refreshAfter} must be shorter than the {@link #ttl}, since the expired results are not served.
+         *
+         * @param refreshAfter The time after which the results are refreshed. If it's not positive, the results are not refreshed.
+         */
+        public Builder refreshAfter(long refreshAfter, TimeUnit unit) {
+            this.refreshNanos = Math.max(0, unit.toNanos(refreshAfter));
+            return this;
+        }
+
+        /**
+         * Makes the thread starting a new invocation execute it before the {@code invoke} methods return,
+         * instead of handing it over to the executor and waiting for it.
+         * The concurrent calls with the same hash wait for the invocation's future as usual.<br>
+         * It saves two thread hand-offs for the calls that wait for the result anyway (e.g. {@link #invokeOnce}),
+         * but makes the asynchronous methods (e.g. {@link #invokeOnceAsync}) block while starting a new invocation.<br>
+         * The background refreshes (see {@link #refreshAfter}) are still executed by the executor.
+         */
+        public Builder callerRuns(boolean isCallerRuns) {
+            this.isCallerRuns = isCallerRuns;
+            return this;
+        }
+
+        /**
+         * Retains at most {@code maximumSize} invocations, including the ones still in progress.
+         * Once the size is exceeded, the invocations that are least likely to be requested again are evicted,
+         * judging by how often and how recently they have been requested.
+         */
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("maximumSize must not be negative but equals to " + maximumSize);
+            }
+
+            this.maximum = maximumSize;
+            this.weigher = null;
+            return this;
+        }
+
+        /**
+         * Retains the invocations whose total weight is at most {@code maximumWeight}.
+         * The weight of an invocation is calculated by the {@code weigher} from the hash and the result once the invocation completes,
+         * and is {@code 0} until then.<br>
+         * The results whose weight is negative are not cached.
+         *
+         * @see #maximumSize(long)
+         */
+        public Builder maximumWeight(long maximumWeight, ToLongBiFunction<Object, Object> weigher) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("maximumWeight must not be negative but equals to " + maximumWeight);
+            }
+
+            this.maximum = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        public CachedInvoker build() {
+            return new CachedInvoker(this);
+        }
+
+        private int expectedKeyCount() {
+            return weigher == null ? (int) Math.min(maximum, Integer.MAX_VALUE) : DEFAULT_EXPECTED_KEY_COUNT;
+        }
     }
 }
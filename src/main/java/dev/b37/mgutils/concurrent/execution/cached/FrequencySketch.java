@@ -0,0 +1,84 @@
+package dev.b37.mgutils.concurrent.execution.cached;
+
+/**
+ * Estimates how often the keys have been accessed recently, using a count-min sketch of 4-bit counters.<br>
+ * Once the number of recorded accesses reaches the sample size, all the counters are halved,
+ * so the estimates reflect the recent accesses rather than the whole history.<br>
+ * Not thread-safe.
+ * @since 3.7.0
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long HALVING_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNTER = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int recordedCount;
+
+    /**
+     * @param expectedKeyCount The number of distinct keys expected to be tracked at the same time.
+     */
+    public FrequencySketch(int expectedKeyCount) {
+        int tableLength = Integer.highestOneBit(Math.max(16, expectedKeyCount) - 1) << 1;
+        this.table = new long[tableLength];
+        this.tableMask = tableLength - 1;
+        this.sampleSize = 10 * Math.max(16, expectedKeyCount);
+    }
+
+    /**
+     * @return The estimated number of the recent accesses of the key, from 0 to 15.
+     */
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+
+        int frequency = MAX_COUNTER;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int offset = (start + i) << 2;
+            int counter = (int) ((table[indexOf(hash, i)] >>> offset) & MAX_COUNTER);
+            frequency = Math.min(frequency, counter);
+        }
+
+        return frequency;
+    }
+
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+
+        boolean isIncremented = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+            if (((table[index] >>> offset) & MAX_COUNTER) != MAX_COUNTER) {
+                table[index] += 1L << offset;
+                isIncremented = true;
+            }
+        }
+
+        if (isIncremented && ++recordedCount == sampleSize) {
+            halve();
+        }
+    }
+
+    private void halve() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & HALVING_MASK;
+        }
+        recordedCount /= 2;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,172 @@
+package dev.b37.mgutils.concurrent.execution.coalescing;
+
+import dev.b37.mgutils.common.Reference;
+import dev.b37.mgutils.delegate.ExceptionalRunnable;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executes at most one task per key at a time, keeping at most one more task of the key pending,
+ * and the pending task is replaced by every newer submission of the key (latest wins).<br>
+ * E.g. when a recomputation is triggered by every change event of an entity,
+ * a burst of events results in at most two recomputations instead of one per event:
+ * the one already running and the one submitted last.<br><br>
+ * The replaced submissions are not executed, and their futures are completed with the result of the task that has replaced them,
+ * so every caller gets a result computed after its submission.
+ * The tasks with different keys are executed in parallel by the {@link ExecutorService}.<br>
+ * The keys without running tasks are removed from the memory.
+ *
+ * @since 3.7.0
+ */
+public class CoalescingExecutor {
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<Object, KeyState> states = new ConcurrentHashMap<>();
+
+    public CoalescingExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Submits the {@code task} to be executed after the task of the same {@code key} that is currently running, if any,
+     * replacing the task of the key that is waiting for execution, if any.<br>
+     * The returned future is shared by all the submissions coalesced into the same execution,
+     * so cancelling it cancels the execution for all of them.
+     * Thus, all the tasks of the same key must return the values of the same type.
+     *
+     * @param key The key the tasks are coalesced by. Must implement {@link Object#equals} and {@link Object#hashCode} properly.
+     * @return The future completed with the result of the task that is executed in place of this submission.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(Object key, Callable<T> task) {
+        Reference<CoalescedTask> firstTask = new Reference<>();
+        Reference<CompletableFuture<Object>> future = new Reference<>();
+
+        states.compute(key, (k, state) -> {
+            if (state == null) {
+                CoalescedTask newTask = new CoalescedTask(task);
+                firstTask.set(newTask);
+                future.set(newTask.future);
+                return new KeyState();
+            }
+
+            if (state.pendingTask == null || state.pendingTask.future.isDone()) {
+                state.pendingTask = new CoalescedTask(task);
+            } else {
+                state.pendingTask.task = task;
+            }
+
+            future.set(state.pendingTask.future);
+            return state;
+        });
+
+        if (firstTask.get() != null) {
+            schedule(key, firstTask.get());
+        }
+
+        return (CompletableFuture<T>) future.get();
+    }
+
+    /**
+     * @see #submit(Object, Callable)
+     */
+    public CompletableFuture<Void> submit(Object key, ExceptionalRunnable task) {
+        return submit(key, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return The number of the keys that have running tasks.
+     */
+    public int getActiveKeyCount() {
+        return states.size();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("activeKeyCount", getActiveKeyCount())
+                .append("executor", executor)
+                .toString();
+    }
+
+    private void schedule(Object key, CoalescedTask task) {
+        try {
+            executor.execute(() -> run(key, task));
+        } catch (RejectedExecutionException e) {
+            task.future.completeExceptionally(e);
+
+            KeyState state = states.remove(key);
+            if (state != null && state.pendingTask != null) {
+                state.pendingTask.future.completeExceptionally(e);
+            }
+
+            throw e;
+        }
+    }
+
+    private void run(Object key, CoalescedTask task) {
+        task.run();
+
+        CoalescedTask nextTask = pollPending(key);
+        if (nextTask != null) {
+            // resubmitted instead of executed in a loop, so a key receiving a storm of events doesn't occupy the thread
+            schedule(key, nextTask);
+        }
+    }
+
+    /**
+     * @return The pending task of the key, or {@code null} if there is none, in which case the key is removed from the map.
+     */
+    private CoalescedTask pollPending(Object key) {
+        Reference<CoalescedTask> pendingTask = new Reference<>();
+
+        states.computeIfPresent(key, (k, state) -> {
+            if (state.pendingTask == null) {
+                return null;
+            }
+
+            pendingTask.set(state.pendingTask);
+            state.pendingTask = null;
+            return state;
+        });
+
+        return pendingTask.get();
+    }
+
+    /**
+     * Only accessed inside the {@link ConcurrentHashMap#compute} methods, which makes it thread-safe.
+     */
+    private static class KeyState {
+        private CoalescedTask pendingTask;
+    }
+
+    private static class CoalescedTask {
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        // replaced while the task is pending, under the lock of the KeyState's map entry
+        private Callable<?> task;
+
+        private CoalescedTask(Callable<?> task) {
+            this.task = task;
+        }
+
+        private void run() {
+            if (future.isDone()) {
+                return;
+            }
+
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package dev.b37.mgutils.concurrent.execution.keyed;
+
+import dev.b37.mgutils.common.Reference;
+import dev.b37.mgutils.delegate.ExceptionalRunnable;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executes the tasks with the same key one after another in the order they were submitted,
+ * while the tasks with different keys are executed in parallel by the {@link ExecutorService}.<br>
+ * E.g. the events of the same entity are processed in order, but the events of different entities are processed concurrently.<br><br>
+ * No thread and no lock is dedicated to a key: the pending tasks of a key are queued in a map entry,
+ * which is drained by a single executor's task at a time and removed as soon as the key has no more tasks.
+ * Thus the memory is used only by the keys with pending tasks, no matter how many distinct keys are submitted.<br>
+ * To keep the keys with many pending tasks from occupying the executor's thread, the drain gives the thread back
+ * to the executor after executing {@code maxBatchSize} tasks, resubmitting itself to continue with the rest of the tasks.
+ *
+ * @since 3.7.0
+ */
+public class KeyedExecutor {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    private final ExecutorService executor;
+    private final int maxBatchSize;
+    private final ConcurrentHashMap<Object, Queue<KeyedTask<?>>> pendingTasks = new ConcurrentHashMap<>();
+
+    public KeyedExecutor(ExecutorService executor) {
+        this(executor, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param maxBatchSize The maximum number of the tasks of a key executed by an executor's task in a row. Must be positive.
+     */
+    public KeyedExecutor(ExecutorService executor, int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive but equals to " + maxBatchSize);
+        }
+
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Submits the {@code task} to be executed after all the previously submitted tasks with the same {@code key} have completed.<br>
+     * A failed task doesn't prevent the next tasks of the key from executing.
+     * A task whose future has been cancelled before it started is skipped.
+     *
+     * @param key The key the task is ordered by. Must implement {@link Object#equals} and {@link Object#hashCode} properly.
+     * @return The future completed with the result of the task.
+     */
+    public <T> CompletableFuture<T> submit(Object key, Callable<T> task) {
+        KeyedTask<T> keyedTask = new KeyedTask<>(task);
+        Reference<Boolean> isFirst = new Reference<>(false);
+
+        // the queue holds only the tasks waiting for the one being executed, so an empty queue means that a task is being executed
+        pendingTasks.compute(key, (k, queue) -> {
+            if (queue == null) {
+                isFirst.set(true);
+                return new ArrayDeque<>();
+            }
+
+            queue.add(keyedTask);
+            return queue;
+        });
+
+        if (isFirst.get()) {
+            schedule(key, keyedTask);
+        }
+
+        return keyedTask.future;
+    }
+
+    /**
+     * @see #submit(Object, Callable)
+     */
+    public CompletableFuture<Void> submit(Object key, ExceptionalRunnable task) {
+        return submit(key, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return The number of the keys that have tasks being executed or waiting for execution.
+     */
+    public int getActiveKeyCount() {
+        return pendingTasks.size();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .append("activeKeyCount", getActiveKeyCount())
+                .append("maxBatchSize", maxBatchSize)
+                .append("executor", executor)
+                .toString();
+    }
+
+    private void schedule(Object key, KeyedTask<?> firstTask) {
+        try {
+            executor.execute(() -> drain(key, firstTask));
+        } catch (RejectedExecutionException e) {
+            // the next tasks of the key can't be executed either, because they are only executed after this one
+            firstTask.future.completeExceptionally(e);
+
+            Queue<KeyedTask<?>> queue = pendingTasks.remove(key);
+            if (queue != null) {
+                // the queue is not modified anymore once it's removed, since the next submissions create a new one
+                for (KeyedTask<?> task : queue) {
+                    task.future.completeExceptionally(e);
+                }
+            }
+
+            throw e;
+        }
+    }
+
+    private void drain(Object key, KeyedTask<?> firstTask) {
+        KeyedTask<?> task = firstTask;
+        int executedCount = 0;
+
+        while (task != null) {
+            if (executedCount == maxBatchSize) {
+                schedule(key, task);
+                return;
+            }
+
+            task.run();
+            executedCount++;
+            task = pollNext(key);
+        }
+    }
+
+    /**
+     * @return The next task of the key, or {@code null} if there is none, in which case the key is removed from the map.
+     */
+    private KeyedTask<?> pollNext(Object key) {
+        Reference<KeyedTask<?>> nextTask = new Reference<>();
+
+        pendingTasks.computeIfPresent(key, (k, queue) -> {
+            KeyedTask<?> task = queue.poll();
+            if (task == null) {
+                return null;
+            }
+
+            nextTask.set(task);
+            return queue;
+        });
+
+        return nextTask.get();
+    }
+
+    private static class KeyedTask<T> {
+        private final Callable<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private KeyedTask(Callable<T> task) {
+            this.task = task;
+        }
+
+        private void run() {
+            if (future.isDone()) {
+                return;
+            }
+
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package dev.b37.mgutils.concurrent.execution.virtual;
+
+import dev.b37.mgutils.concurrent.NullableLazy;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Creates {@link ExecutorService}s that start a new virtual thread for each task.<br>
+ * Virtual threads are available since Java 21, while the library targets Java 8,
+ * so {@link Executors#newVirtualThreadPerTaskExecutor} is looked up at runtime.<br>
+ * <br>
+ * The returned executors can be passed to {@link dev.b37.mgutils.concurrent.TaskInvoker TaskInvoker},
+ * {@link dev.b37.mgutils.concurrent.execution.cached.CachedInvoker CachedInvoker} and
+ * {@link dev.b37.mgutils.concurrent.TaskTimer TaskTimer} to run many blocking tasks without sizing a thread pool.
+ *
+ * @since 3.7.0
+ */
+public final class VirtualThreadExecutors {
+    private static final NullableLazy<MethodHandle> executorFactory = new NullableLazy<>(VirtualThreadExecutors::findExecutorFactory);
+
+    private VirtualThreadExecutors() { }
+
+    /**
+     * @return {@code true} if the current JVM supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return executorFactory.get() != null;
+    }
+
+    /**
+     * Creates an {@link ExecutorService} that starts a new virtual thread for each task.
+     *
+     * @throws UnsupportedOperationException Thrown if the current JVM does not support virtual threads.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() throws UnsupportedOperationException {
+        MethodHandle factory = executorFactory.get();
+        if (factory == null) {
+            throw new UnsupportedOperationException("virtual threads are not supported by the current JVM");
+        }
+
+        try {
+            return (ExecutorService) factory.invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Creates an {@link ExecutorService} that starts a new virtual thread for each task
+     * if the current JVM supports virtual threads. Otherwise, returns the executor created by the {@code fallbackFactory}.
+     *
+     * @param fallbackFactory Creates the executor used when virtual threads are not supported,
+     *                        e.g. {@code Executors::newCachedThreadPool}.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutorOrElse(Supplier<? extends ExecutorService> fallbackFactory) {
+        if (!isSupported()) {
+            return fallbackFactory.get();
+        }
+
+        return newVirtualThreadPerTaskExecutor();
+    }
+
+    @Nullable
+    private static MethodHandle findExecutorFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
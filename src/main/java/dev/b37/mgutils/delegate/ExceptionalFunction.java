@@ -0,0 +1,15 @@
+package dev.b37.mgutils.delegate;
+
+/**
+ * Represents a {@link java.util.function.Function} that can throw an {@link Exception}.
+ * @since 3.7.0
+ */
+public interface ExceptionalFunction<T, R> {
+    /**
+     * Applies this function to the given argument.
+     *
+     * @param t the function argument
+     * @return the function result
+     */
+    R apply(T t) throws Exception;
+}
@@ -0,0 +1,58 @@
+package dev.b37.mgutils.concurrent;
+
+import dev.b37.mgutils.delegate.ExceptionalConsumer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ForkJoinTaskInvokerTest {
+    @Test
+    public void testForkJoinTaskInvoker() {
+        ForkJoinTaskInvoker<Long> invoker = new ForkJoinTaskInvoker<>(new ForkJoinPool(8));
+
+        invoker.submit(rangeOf(0, 100_000));
+        invoker.submit(rangeOf(100_000, 100_500));
+
+        List<Long> results = invoker.completeAll();
+
+        // the subtasks are forked from left to right, so the values keep the order of the ranges
+        Assertions.assertEquals(100_500, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            Assertions.assertEquals(i, results.get(i));
+        }
+
+        Assertions.assertTrue(invoker.completeAll().isEmpty());
+    }
+
+    @Test
+    public void testForkJoinTaskInvokerException() {
+        ForkJoinTaskInvoker<Integer> invoker = new ForkJoinTaskInvoker<>();
+
+        invoker.submit(context -> {
+            context.accept(1);
+            context.fork(subcontext -> {
+                throw new Exception("failed");
+            });
+        });
+
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, invoker::completeAll);
+        Assertions.assertEquals("failed", exception.getCause().getMessage());
+    }
+
+    private static ExceptionalConsumer<ForkJoinTaskInvoker.Context<Long>> rangeOf(int from, int to) {
+        return context -> {
+            if (to - from <= 1000) {
+                for (long i = from; i < to; i++) {
+                    context.accept(i);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            context.fork(rangeOf(from, middle));
+            context.fork(rangeOf(middle, to));
+        };
+    }
+}
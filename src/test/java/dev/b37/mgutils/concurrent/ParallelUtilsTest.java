@@ -0,0 +1,55 @@
+package dev.b37.mgutils.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class ParallelUtilsTest {
+    @Test
+    public void testParallelFor() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        AtomicIntegerArray calls = new AtomicIntegerArray(100_000);
+        ParallelUtils.parallelFor(executor, 8, -50_000, 50_000, i -> calls.getAndIncrement(i + 50_000));
+
+        for (int i = 0; i < calls.length(); i++) {
+            Assertions.assertEquals(1, calls.get(i));
+        }
+
+        ParallelUtils.parallelFor(executor, 10, 0, i -> Assertions.fail("This is not supposed to be executed"));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            ParallelUtils.parallelFor(executor, 0, 100_000, i -> {
+                if (i == 54_321) {
+                    throw new IllegalStateException("failed");
+                }
+            });
+        });
+        // the explicit parallelism makes the exception thrown by a worker of the invoker regardless of the processor count
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            ParallelUtils.parallelFor(executor, 8, 0, 100_000, i -> {
+                if (i == 54_321) {
+                    throw new IllegalStateException("failed");
+                }
+            });
+        });
+    }
+
+    @Test
+    public void testParallelMap() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Long> squares = ParallelUtils.parallelMap(executor, 1_000_000, i -> (long) i * i);
+
+        Assertions.assertEquals(1_000_000, squares.size());
+        for (int i = 0; i < squares.size(); i++) {
+            Assertions.assertEquals((long) i * i, squares.get(i));
+        }
+
+        Assertions.assertEquals(3, ParallelUtils.parallelMap(executor, 3, i -> i).size());
+    }
+}
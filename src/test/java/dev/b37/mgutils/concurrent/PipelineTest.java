@@ -0,0 +1,97 @@
+package dev.b37.mgutils.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class PipelineTest {
+    @Test
+    public void testPipeline() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        Pipeline<Integer, String> pipeline = Pipeline.<Integer>from(executor)
+                .thenApply(4, i -> i * 2)
+                .thenApply(2, 4, i -> i % 3 == 0 ? null : i)
+                .thenApply(3, i -> "value-" + i);
+
+        List<Integer> input = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+
+        List<String> expected = input.stream()
+                .map(i -> i * 2)
+                .filter(i -> i % 3 != 0)
+                .map(i -> "value-" + i)
+                .sorted()
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < 3; i++) {
+            List<String> outputs = pipeline.process(input);
+            Collections.sort(outputs);
+
+            Assertions.assertEquals(expected, outputs);
+        }
+
+        Assertions.assertEquals(input, Pipeline.<Integer>from(executor).process(input));
+    }
+
+    @Test
+    public void testPipelineBackpressure() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        AtomicInteger parsed = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        List<Integer> outputs = new ArrayList<>();
+
+        Pipeline.<Integer>from(executor)
+                .thenApply(1, 2, i -> {
+                    parsed.incrementAndGet();
+                    return i;
+                })
+                .thenApply(1, 2, i -> {
+                    Thread.sleep(1);
+                    return i;
+                })
+                .process(IntStream.range(0, 200).boxed().collect(Collectors.toList()), i -> {
+                    outputs.add(i);
+                    maxAhead.accumulateAndGet(parsed.get() - outputs.size(), Math::max);
+                });
+
+        Assertions.assertEquals(200, outputs.size());
+        // both stages preserve the order since each of them has a single worker
+        Assertions.assertEquals(IntStream.range(0, 200).boxed().collect(Collectors.toList()), outputs);
+        // the first stage can't get far ahead of the slow one because of the bounded queues
+        Assertions.assertTrue(maxAhead.get() < 64, "maxAhead = " + maxAhead.get());
+    }
+
+    @Test
+    public void testPipelineFailure() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> {
+            Pipeline.<Integer>from(executor)
+                    .thenApply(4, 1, i -> {
+                        if (i == 500) {
+                            throw new IllegalStateException("failed");
+                        }
+                        return i;
+                    })
+                    .thenApply(2, 1, i -> {
+                        Thread.sleep(10);
+                        return i;
+                    })
+                    .process(IntStream.range(0, 1_000_000).boxed().collect(Collectors.toList()));
+        });
+        Assertions.assertInstanceOf(IllegalStateException.class, exception.getCause());
+
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+}
@@ -1,16 +1,25 @@
 package dev.b37.mgutils.concurrent;
 
+import dev.b37.mgutils.delegate.CollectionConsumer;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class TaskInvokerTest {
     private final Logger log = LoggerFactory.getLogger(this.getClass());
@@ -158,6 +167,551 @@ public class TaskInvokerTest {
         Assertions.assertTrue(results.size() < 30);
     }
 
+    @Test
+    public void testTaskInvokerStreaming() {
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        for (int i = 0; i < 10; i++) {
+            int number = i;
+            invoker.submit(() -> {
+                Thread.sleep(number == 0 ? 1000 : 20);
+                return number;
+            });
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<Long> receivedAfter = new ArrayList<>();
+        List<Integer> results;
+        try (Stream<Integer> stream = invoker.completeAllStreaming()) {
+            results = stream
+                    .peek(number -> receivedAfter.add(System.currentTimeMillis() - startTime))
+                    .collect(Collectors.toList());
+        }
+
+        Assertions.assertEquals(10, results.size());
+        Assertions.assertEquals(0, results.get(9));
+        Assertions.assertTrue(receivedAfter.get(0) < 500);
+    }
+
+    @Test
+    public void testTaskInvokerStreamingFailure() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        AtomicInteger completedCount = new AtomicInteger(0);
+
+        invoker.submit(() -> {
+            throw new IllegalStateException("failed");
+        });
+        for (int i = 0; i < 20; i++) {
+            invoker.submit(() -> {
+                Thread.sleep(50);
+                completedCount.getAndIncrement();
+            });
+        }
+
+        Assertions.assertThrows(RuntimeException.class, () -> {
+            try (Stream<Integer> stream = invoker.completeAllStreaming()) {
+                stream.forEach(number -> { });
+            }
+        });
+        Assertions.assertTrue(completedCount.get() < 20);
+    }
+
+    @Test
+    public void testTaskInvokerStreamingBounded() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        final int MAX_IN_FLIGHT = 4;
+        AtomicInteger takenCount = new AtomicInteger(0);
+        AtomicInteger consumedCount = new AtomicInteger(0);
+
+        Stream<Callable<Integer>> source = IntStream.range(0, 1000)
+                .mapToObj(number -> {
+                    takenCount.getAndIncrement();
+                    return () -> number * 2;
+                });
+
+        long sum;
+        try (Stream<Integer> stream = invoker.completeAllStreaming(source, MAX_IN_FLIGHT)) {
+            sum = stream
+                    .peek(number -> {
+                        consumedCount.getAndIncrement();
+                        Assertions.assertTrue(takenCount.get() - consumedCount.get() <= MAX_IN_FLIGHT);
+                    })
+                    .mapToLong(Integer::longValue)
+                    .sum();
+        }
+
+        Assertions.assertEquals(999 * 1000, sum);
+        Assertions.assertEquals(1000, consumedCount.get());
+    }
+
+    @Test
+    public void testTaskInvokerFailFast() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        AtomicInteger interruptedCount = new AtomicInteger(0);
+
+        invoker.submit(() -> {
+            Thread.sleep(50);
+            throw new IllegalStateException("failed");
+        });
+        for (int i = 0; i < 3; i++) {
+            invoker.submit(() -> {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interruptedCount.getAndIncrement();
+                    throw e;
+                }
+            });
+        }
+
+        long startTime = System.currentTimeMillis();
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, invoker::completeAllFailFast);
+        long elapsedTime = System.currentTimeMillis() - startTime;
+
+        Assertions.assertInstanceOf(IllegalStateException.class, exception.getCause().getCause());
+        Assertions.assertTrue(elapsedTime < 2000);
+
+        invoker.submit(() -> 42);
+        Assertions.assertEquals(Collections.singletonList(42), invoker.completeAllFailFast());
+
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, interruptedCount.get());
+    }
+
+    @Test
+    public void testTaskInvokerAsync() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        TaskInvoker<String> invoker = new TaskInvoker<>(executor);
+
+        for (int i = 0; i < 20; i++) {
+            int number = i;
+            invoker.submit(() -> {
+                Thread.sleep(100);
+                return "Number " + number;
+            });
+        }
+
+        CompletableFuture<List<String>> resultsFuture = invoker.completeAllAsync();
+        Assertions.assertFalse(resultsFuture.isDone());
+
+        List<String> results = resultsFuture.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(20, results.size());
+        Assertions.assertEquals("Number 7", results.get(7));
+
+        invoker.submit(() -> {
+            throw new IllegalStateException("failed");
+        });
+        CompletableFuture<Void> voidFuture = invoker.completeAllVoidAsync();
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class, voidFuture::get);
+        Assertions.assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    public void testTaskInvokerSubmitAsync() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        for (int i = 0; i < 100; i++) {
+            int number = i;
+            invoker.submitAsync(() -> {
+                CompletableFuture<Integer> future = new CompletableFuture<>();
+                scheduler.schedule(() -> future.complete(number), 200, TimeUnit.MILLISECONDS);
+                return future;
+            });
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<Integer> results = invoker.completeAll();
+        Assertions.assertTrue(System.currentTimeMillis() - startTime < 5000);
+        Assertions.assertEquals(100, results.size());
+        Assertions.assertEquals(42, results.get(42));
+
+        for (int i = 0; i < 100; i++) {
+            int number = i;
+            invoker.submitAsync(() -> {
+                CompletableFuture<Integer> future = new CompletableFuture<>();
+                scheduler.schedule(() -> future.complete(number), 200, TimeUnit.MILLISECONDS);
+                return future;
+            });
+        }
+
+        startTime = System.currentTimeMillis();
+        results = invoker.completeAllAsync().get();
+        Assertions.assertTrue(System.currentTimeMillis() - startTime < 5000);
+        Assertions.assertEquals(100, results.size());
+
+        invoker.submitAsync(() -> {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("failed"));
+            return future;
+        });
+        Assertions.assertThrows(RuntimeException.class, invoker::completeAll);
+    }
+
+    @Test
+    public void testTaskInvokerSubmitAsyncTimeout() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        CompletableFuture<Integer> neverCompleted = new CompletableFuture<>();
+        invoker.submitAsync(() -> neverCompleted);
+        invoker.submit(() -> 1);
+
+        long startTime = System.currentTimeMillis();
+        Assertions.assertThrows(CancellationException.class, () -> invoker.completeAll(200, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(System.currentTimeMillis() - startTime < 2000);
+        Assertions.assertTrue(neverCompleted.isCancelled());
+
+        CompletableFuture<Integer> neverCompletedVoid = new CompletableFuture<>();
+        invoker.submitAsync(() -> neverCompletedVoid);
+
+        startTime = System.currentTimeMillis();
+        Assertions.assertThrows(CancellationException.class, () -> invoker.completeAllVoid(200, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(System.currentTimeMillis() - startTime < 2000);
+        Assertions.assertTrue(neverCompletedVoid.isCancelled());
+
+        // the stages completed in time are not affected
+        invoker.submitAsync(() -> CompletableFuture.completedFuture(2));
+        Assertions.assertEquals(Collections.singletonList(2), invoker.completeAll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testTaskInvokerChunked() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        TaskInvoker<Long> invoker = new TaskInvoker<>(executor);
+
+        List<Integer> inputs = IntStream.range(0, 100_003)
+                .boxed()
+                .collect(Collectors.toList());
+
+        invoker.submitChunked(inputs, 1000, number -> number * 2L);
+        List<Long> results = invoker.completeAll();
+
+        Assertions.assertEquals(100_003, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            Assertions.assertEquals(i * 2L, results.get(i));
+        }
+
+        invoker.submitChunked(inputs, number -> (long) number);
+        Assertions.assertEquals(inputs.size(), invoker.completeAll().size());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            invoker.submitChunked(inputs, 0, number -> (long) number);
+        });
+    }
+
+    @Test
+    public void testTaskInvokerCollector() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        for (int i = 0; i < 8; i++) {
+            int number = i;
+            invoker.submit((consumer) -> {
+                for (int j = 0; j < 1000; j++) {
+                    consumer.accept(number);
+                }
+            });
+        }
+        invoker.submit(() -> 100);
+        invoker.submit(() -> { });
+
+        Map<Integer, Long> counts = invoker.completeAll(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        Assertions.assertEquals(9, counts.size());
+        Assertions.assertEquals(1000, counts.get(7));
+        Assertions.assertEquals(1, counts.get(100));
+
+        for (int i = 0; i < 100; i++) {
+            int number = i;
+            invoker.submit(() -> number);
+        }
+
+        List<Integer> results = new ArrayList<>();
+        invoker.completeAll(new CollectionConsumer<>(results));
+        Assertions.assertEquals(100, results.size());
+        Assertions.assertEquals(42, results.get(42));
+
+        Assertions.assertEquals(0, invoker.completeAll(Collectors.counting()));
+    }
+
+    @Test
+    public void testTaskInvokerReduce() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        for (int i = 1; i <= 10_000; i++) {
+            int number = i;
+            invoker.submit(() -> number);
+        }
+
+        long sum = invoker.completeAndReduce(0L, (partialSum, number) -> partialSum + number, Long::sum);
+        Assertions.assertEquals(10_000L * 10_001 / 2, sum);
+
+        for (int i = 0; i < 1000; i++) {
+            int number = i;
+            invoker.submit((consumer) -> {
+                consumer.accept(number % 10);
+                consumer.accept(number % 10);
+            });
+        }
+
+        Map<Integer, Integer> counts = invoker.completeAndReduce(Collections.emptyMap(),
+                (partialCounts, number) -> {
+                    Map<Integer, Integer> newCounts = new HashMap<>(partialCounts);
+                    newCounts.merge(number, 1, Integer::sum);
+                    return newCounts;
+                },
+                (left, right) -> {
+                    Map<Integer, Integer> merged = new HashMap<>(left);
+                    right.forEach((number, count) -> merged.merge(number, count, Integer::sum));
+                    return merged;
+                });
+        Assertions.assertEquals(10, counts.size());
+        Assertions.assertEquals(200, counts.get(3));
+
+        Assertions.assertEquals(-1L, invoker.completeAndReduce(-1L, (partialSum, number) -> partialSum + number, Long::sum));
+    }
+
+    @Test
+    public void testTaskInvokerPartially() {
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        for (int i = 0; i < 8; i++) {
+            int number = i;
+            invoker.submit(() -> {
+                Thread.sleep(number == 3 || number == 5 ? 5000 : 10);
+                return number;
+            });
+        }
+        invoker.submit(() -> {
+            throw new IllegalStateException("failed");
+        });
+        invoker.submitAsync(CompletableFuture::new);
+
+        PartialResult<Integer> partialResult = invoker.completeAllPartially(500, TimeUnit.MILLISECONDS);
+
+        Assertions.assertFalse(partialResult.isComplete());
+        Assertions.assertEquals(Arrays.asList(0, 1, 2, 4, 6, 7), partialResult.getResults());
+        Assertions.assertEquals(Arrays.asList(3, 5, 9), partialResult.getTimedOutTasks());
+        Assertions.assertEquals(Collections.singleton(8), partialResult.getFailedTasks().keySet());
+        Assertions.assertInstanceOf(IllegalStateException.class, partialResult.getFailedTasks().get(8));
+    }
+
+    @Test
+    public void testTaskInvokerHedged() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        TaskInvoker<String> invoker = new TaskInvoker<>(executor);
+
+        AtomicInteger attemptCount = new AtomicInteger(0);
+        AtomicInteger interruptedCount = new AtomicInteger(0);
+        AtomicLong latencyNanos = new AtomicLong(0);
+        HedgingPolicy hedgingPolicy = new HedgingPolicy() {
+            @Override
+            public long getDelayNanos() {
+                return TimeUnit.MILLISECONDS.toNanos(100);
+            }
+
+            @Override
+            public void recordLatency(long latency) {
+                latencyNanos.set(latency);
+            }
+        };
+
+        invoker.submitHedged(() -> {
+            if (attemptCount.getAndIncrement() == 0) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interruptedCount.getAndIncrement();
+                    throw e;
+                }
+                return "slow";
+            }
+            return "fast";
+        }, hedgingPolicy);
+        invoker.submitHedged(() -> "not hedged", HedgingPolicy.fixedDelay(1, TimeUnit.SECONDS));
+
+        long startTime = System.currentTimeMillis();
+        List<String> results = invoker.completeAll();
+
+        Assertions.assertTrue(System.currentTimeMillis() - startTime < 2000);
+        Assertions.assertEquals(Arrays.asList("fast", "not hedged"), results);
+        Assertions.assertEquals(2, attemptCount.get());
+
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, interruptedCount.get());
+        // the hedge provided the result, but the latency of the task includes the delay before the hedge
+        Assertions.assertTrue(latencyNanos.get() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testTaskInvokerHedgeRejected() throws Exception {
+        AtomicInteger executionCount = new AtomicInteger(0);
+        ExecutorService executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                // the task itself and its primary attempt are accepted, while the hedge is rejected
+                if (executionCount.incrementAndGet() == 3) {
+                    throw new RejectedExecutionException("rejected");
+                }
+                super.execute(command);
+            }
+        };
+        TaskInvoker<String> invoker = new TaskInvoker<>(executor);
+
+        invoker.submitHedged(() -> {
+            Thread.sleep(200);
+            throw new IllegalStateException("failed");
+        }, HedgingPolicy.fixedDelay(50, TimeUnit.MILLISECONDS));
+
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> invoker.completeAll(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IllegalStateException.class, exception.getCause().getCause());
+        Assertions.assertEquals(3, executionCount.get());
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void testHedgingPolicyPercentile() {
+        HedgingPolicy hedgingPolicy = HedgingPolicy.percentile(90, 1, TimeUnit.SECONDS);
+        Assertions.assertEquals(TimeUnit.SECONDS.toNanos(1), hedgingPolicy.getDelayNanos());
+
+        for (int i = 1; i <= 160; i++) {
+            hedgingPolicy.recordLatency(i);
+        }
+        Assertions.assertEquals(144, hedgingPolicy.getDelayNanos());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            HedgingPolicy.percentile(0, 1, TimeUnit.SECONDS);
+        });
+    }
+
+    @Test
+    public void testTaskInvokerCancellationToken() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        CountDownLatch stoppedLatch = new CountDownLatch(1);
+
+        invoker.submitCancellableVoid((cancellationToken) -> {
+            while (!cancellationToken.isCancelled()) {
+                Thread.yield();
+            }
+            stoppedLatch.countDown();
+        });
+
+        Assertions.assertThrows(CancellationException.class, () -> {
+            invoker.completeAllVoid(200, TimeUnit.MILLISECONDS);
+        });
+        Assertions.assertTrue(stoppedLatch.await(1, TimeUnit.SECONDS));
+
+        AtomicInteger iterationCount = new AtomicInteger(0);
+
+        invoker.submitCancellable((cancellationToken) -> {
+            for (int i = 0; i < 1_000_000; i++) {
+                cancellationToken.throwIfCancelled();
+                iterationCount.getAndIncrement();
+                Thread.sleep(1);
+            }
+            return 0;
+        });
+        invoker.submit(() -> {
+            Thread.sleep(100);
+            invoker.cancelAll();
+        });
+
+        Assertions.assertThrows(CancellationException.class, invoker::completeAll);
+        Assertions.assertTrue(iterationCount.get() < 1000);
+    }
+
+    @Test
+    public void testTaskInvokerAdaptive() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        TaskInvoker<String> invoker = new TaskInvoker<>(executor);
+
+        // the only executor's thread is busy, so the tasks can only be executed by the current thread
+        executor.submit(() -> {
+            Thread.sleep(2000);
+            return null;
+        });
+
+        for (int i = 0; i < 10; i++) {
+            invoker.submit(() -> {
+                Thread.sleep(10);
+                return Thread.currentThread().getName();
+            });
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<String> threadNames = invoker.completeAllAdaptive();
+
+        Assertions.assertTrue(System.currentTimeMillis() - startTime < 1000);
+        Assertions.assertEquals(10, threadNames.size());
+        Assertions.assertTrue(threadNames.stream().allMatch(Thread.currentThread().getName()::equals));
+
+        for (int i = 0; i < 3; i++) {
+            invoker.submit(() -> Thread.currentThread().getName());
+        }
+        invoker.completeAllAdaptive();
+
+        for (int i = 0; i < 3; i++) {
+            invoker.submit(() -> Thread.currentThread().getName());
+        }
+        threadNames = invoker.completeAllAdaptive();
+        Assertions.assertEquals(Collections.nCopies(3, Thread.currentThread().getName()), threadNames);
+    }
+
+    @Test
+    public void testTaskInvokerAdaptiveInline() {
+        AtomicInteger executionCount = new AtomicInteger(0);
+        ExecutorService executor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                executionCount.incrementAndGet();
+                super.execute(command);
+            }
+        };
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        // the average run time is unknown yet, so the tasks are handed over to the idle executor
+        for (int i = 0; i < 3; i++) {
+            int value = i;
+            invoker.submit(() -> value);
+        }
+        Assertions.assertEquals(Arrays.asList(0, 1, 2), invoker.completeAllAdaptive());
+        Assertions.assertEquals(3, executionCount.get());
+
+        // once the tasks are known to take microseconds, they are executed by the current thread without using the executor
+        for (int batch = 0; batch < 50; batch++) {
+            for (int i = 0; i < 3; i++) {
+                int value = i;
+                invoker.submit(() -> value);
+            }
+            invoker.completeAllAdaptive();
+        }
+
+        executionCount.set(0);
+        for (int i = 0; i < 3; i++) {
+            int value = i;
+            invoker.submit(() -> value);
+        }
+        Assertions.assertEquals(Arrays.asList(0, 1, 2), invoker.completeAllAdaptive());
+        Assertions.assertEquals(0, executionCount.get());
+
+        executor.shutdown();
+    }
+
     @Test
     public void testExecutorService() {
         ExecutorService executor = Executors.newFixedThreadPool(50);
@@ -0,0 +1,96 @@
+package dev.b37.mgutils.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TaskStatisticsTest {
+    @Test
+    public void testTaskStatistics() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        TaskStatistics statistics = new TaskStatistics();
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor, statistics);
+
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            invoker.submit(() -> {
+                Thread.sleep(10);
+                return value;
+            });
+        }
+        invoker.completeAll();
+
+        Assertions.assertEquals(10, statistics.getCompletedCount());
+        Assertions.assertEquals(0, statistics.getFailedCount());
+        Assertions.assertTrue(statistics.getRunTimePercentile(50, TimeUnit.MILLISECONDS) >= 8);
+        Assertions.assertTrue(statistics.getAverageRunTime(TimeUnit.MILLISECONDS) >= 10);
+        // the last task waits for the other nine tasks executed by the single thread
+        Assertions.assertTrue(statistics.getQueueWaitPercentile(100, TimeUnit.MILLISECONDS) >= 80);
+
+        invoker.submit(() -> {
+            throw new IllegalStateException("failed");
+        });
+        Assertions.assertThrows(RuntimeException.class, invoker::completeAll);
+
+        Assertions.assertEquals(11, statistics.getCompletedCount());
+        Assertions.assertEquals(1, statistics.getFailedCount());
+
+        statistics.reset();
+        Assertions.assertEquals(0, statistics.getCompletedCount());
+        Assertions.assertEquals(0, statistics.getRunTimePercentile(99, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testTaskStatisticsCancelledTasks() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        TaskStatistics statistics = new TaskStatistics();
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor, statistics);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        invoker.submit(() -> {
+            started.countDown();
+            latch.await();
+            return 0;
+        });
+        for (int i = 1; i < 10; i++) {
+            int value = i;
+            invoker.submit(() -> value);
+        }
+        CompletableFuture<List<Integer>> results = invoker.completeAllAsync();
+
+        // the tasks waiting for the single thread are cancelled before starting, so they are not reported
+        Assertions.assertTrue(started.await(1, TimeUnit.SECONDS));
+        invoker.cancelAll();
+        latch.countDown();
+        Assertions.assertThrows(Exception.class, () -> results.get(1, TimeUnit.SECONDS));
+        executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(1, statistics.getCompletedCount());
+        Assertions.assertEquals(0, statistics.getFailedCount());
+    }
+
+    @Test
+    public void testTaskStatisticsPercentiles() {
+        TaskStatistics statistics = new TaskStatistics();
+        for (int i = 1; i <= 1000; i++) {
+            statistics.onTaskCompleted(i * 1000L, i, null);
+        }
+
+        Assertions.assertEquals(1, statistics.getRunTimePercentile(0, TimeUnit.NANOSECONDS));
+        assertApproximately(500_000, statistics.getQueueWaitPercentile(50, TimeUnit.NANOSECONDS));
+        assertApproximately(990_000, statistics.getQueueWaitPercentile(99, TimeUnit.NANOSECONDS));
+        assertApproximately(1000, statistics.getRunTimePercentile(100, TimeUnit.NANOSECONDS));
+        Assertions.assertEquals(500_500, statistics.getAverageQueueWait(TimeUnit.NANOSECONDS));
+    }
+
+    private static void assertApproximately(long expected, long actual) {
+        Assertions.assertTrue(actual >= expected && actual <= expected * 1.125, "expected ~" + expected + " but was " + actual);
+    }
+}
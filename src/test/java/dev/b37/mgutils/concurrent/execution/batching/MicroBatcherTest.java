@@ -0,0 +1,108 @@
+package dev.b37.mgutils.concurrent.execution.batching;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class MicroBatcherTest {
+    @Test
+    public void testMicroBatcher() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ConcurrentLinkedQueue<List<Integer>> batches = new ConcurrentLinkedQueue<>();
+
+        try (MicroBatcher<Integer> batcher = new MicroBatcher<>(executor, 100, 1, TimeUnit.MINUTES, batches::add)) {
+            IntStream.range(0, 10_000).boxed().parallel().forEach(batcher);
+        }
+
+        Assertions.assertEquals(100, batches.size());
+
+        List<Integer> items = new ArrayList<>();
+        for (List<Integer> batch : batches) {
+            Assertions.assertEquals(100, batch.size());
+            items.addAll(batch);
+        }
+        Collections.sort(items);
+        Assertions.assertEquals(IntStream.range(0, 10_000).boxed().collect(Collectors.toList()), items);
+    }
+
+    @Test
+    public void testMicroBatcherDelay() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ConcurrentLinkedQueue<List<Integer>> batches = new ConcurrentLinkedQueue<>();
+
+        MicroBatcher<Integer> batcher = new MicroBatcher<>(executor, 100, 50, TimeUnit.MILLISECONDS, batches::add);
+
+        long startTime = System.nanoTime();
+        batcher.acceptAll(IntStream.range(0, 150).boxed().collect(Collectors.toList()));
+        CompletableFuture<Void> completion = batcher.submit(150);
+
+        // the first batch is full, while the second one is handed over after the delay
+        Assertions.assertFalse(completion.isDone());
+        completion.get(1, TimeUnit.SECONDS);
+        Assertions.assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        Assertions.assertEquals(2, batches.size());
+        Assertions.assertEquals(51, batches.stream().mapToInt(List::size).min().getAsInt());
+
+        batcher.close();
+        Assertions.assertThrows(IllegalStateException.class, () -> batcher.accept(1));
+    }
+
+    @Test
+    public void testMicroBatcherClose() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        ConcurrentLinkedQueue<CompletableFuture<Void>> completions = new ConcurrentLinkedQueue<>();
+
+        MicroBatcher<Integer> batcher = new MicroBatcher<>(executor, 1, 1, TimeUnit.MINUTES, batch -> Thread.sleep(1));
+
+        // every item fills a batch, which is handed over by the submitting thread while the batcher is being closed
+        CompletableFuture<?>[] submissions = IntStream.range(0, 4)
+                .mapToObj(submitter -> CompletableFuture.runAsync(() -> {
+                    try {
+                        for (int i = 0; ; i++) {
+                            completions.add(batcher.submit(i));
+                        }
+                    } catch (IllegalStateException ignored) {
+                        // the batcher is closed
+                    }
+                }, submitters))
+                .toArray(CompletableFuture<?>[]::new);
+
+        Thread.sleep(100);
+        batcher.close();
+
+        for (CompletableFuture<Void> completion : completions) {
+            Assertions.assertTrue(completion.isDone());
+        }
+
+        CompletableFuture.allOf(submissions).get(1, TimeUnit.SECONDS);
+        submitters.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testMicroBatcherFailure() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        MicroBatcher<Integer> batcher = new MicroBatcher<>(executor, 2, 1, TimeUnit.MINUTES, batch -> {
+            throw new IllegalStateException("failed");
+        });
+
+        CompletableFuture<Void> completion = batcher.submit(1);
+        Assertions.assertSame(completion, batcher.submit(2));
+        Assertions.assertThrows(Exception.class, completion::join);
+
+        batcher.close();
+    }
+}
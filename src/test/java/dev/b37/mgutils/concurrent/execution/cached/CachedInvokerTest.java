@@ -4,8 +4,11 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -105,6 +108,261 @@ public class CachedInvokerTest {
         Assertions.assertSame(1, task5CalledTimes.get());
     }
 
+    @Test
+    public void testCachedInvokerTtl() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        CachedInvoker cachedInvoker = new CachedInvoker(executor, 300, TimeUnit.MILLISECONDS);
+
+        AtomicInteger timesExecuted = new AtomicInteger(0);
+
+        double value = cachedInvoker.invokeOnce("TASK-1", () -> fetchValue(timesExecuted));
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(value, cachedInvoker.invokeOnce("TASK-1", () -> fetchValue(timesExecuted)));
+        }
+        Assertions.assertEquals(1, timesExecuted.get());
+
+        Thread.sleep(400);
+
+        Assertions.assertNotEquals(value, cachedInvoker.invokeOnce("TASK-1", () -> fetchValue(timesExecuted)));
+        Assertions.assertEquals(2, timesExecuted.get());
+
+        cachedInvoker.invalidate("TASK-1");
+        cachedInvoker.invokeOnce("TASK-1", () -> fetchValue(timesExecuted));
+        Assertions.assertEquals(3, timesExecuted.get());
+
+        // the failures are not cached
+        Assertions.assertThrows(RuntimeException.class, () -> cachedInvoker.invokeOnce("TASK-2", () -> {
+            throw new IllegalStateException("failed");
+        }));
+        Assertions.assertEquals("recovered", cachedInvoker.invokeOnce("TASK-2", () -> "recovered"));
+
+        // the per-call TTL overrides the invoker's one
+        CachedInvoker uncachedInvoker = new CachedInvoker(executor);
+        uncachedInvoker.invokeOnce("TASK-3", () -> fetchValue(timesExecuted), 1, TimeUnit.MINUTES);
+        uncachedInvoker.invokeOnce("TASK-3", () -> fetchValue(timesExecuted), 1, TimeUnit.MINUTES);
+        Assertions.assertEquals(4, timesExecuted.get());
+
+        Thread.sleep(400);
+        cachedInvoker.cleanUp();
+        cachedInvoker.invokeOnce("TASK-1", () -> fetchValue(timesExecuted));
+        Assertions.assertEquals(5, timesExecuted.get());
+    }
+
+    @Test
+    public void testCachedInvokerMaximumSize() {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        CachedInvoker cachedInvoker = CachedInvoker.builder(executor)
+                .maximumSize(100)
+                .build();
+
+        AtomicInteger timesExecuted = new AtomicInteger(0);
+
+        // the hot keys are requested often enough to survive the scan of the one-off keys, unlike with LRU
+        for (int i = 0; i < 10; i++) {
+            for (int key = 0; key < 10; key++) {
+                int value = key;
+                cachedInvoker.invokeOnce("HOT-" + key, () -> {
+                    timesExecuted.incrementAndGet();
+                    return value;
+                });
+            }
+        }
+        Assertions.assertEquals(10, timesExecuted.get());
+
+        for (int key = 0; key < 10_000; key++) {
+            int value = key;
+            Assertions.assertEquals(value, cachedInvoker.invokeOnce("SCAN-" + key, () -> value));
+            Assertions.assertTrue(cachedInvoker.size() <= 100);
+
+            if (key % 100 == 0) {
+                for (int hotKey = 0; hotKey < 10; hotKey++) {
+                    cachedInvoker.invokeOnce("HOT-" + hotKey, () -> {
+                        timesExecuted.incrementAndGet();
+                        return -1;
+                    });
+                }
+            }
+        }
+        Assertions.assertEquals(10, timesExecuted.get());
+    }
+
+    @Test
+    public void testCachedInvokerMaximumSizeLateWrites() {
+        ConcurrentHashMap<Object, CachedInvocation<?>> invocations = new ConcurrentHashMap<>();
+        BoundedPolicy policy = new BoundedPolicy(10, 10, invocations);
+
+        // the writes may be recorded after the invocation has been invalidated and even replaced by another thread
+        CachedInvocation<?> invalidatedInvocation = new CachedInvocation<>(CompletableFuture.completedFuture(0), () -> { });
+        CachedInvocation<?> replacedInvocation = new CachedInvocation<>(CompletableFuture.completedFuture(1), () -> { });
+        CachedInvocation<?> currentInvocation = new CachedInvocation<>(CompletableFuture.completedFuture(1), () -> { });
+
+        invocations.put(1, currentInvocation);
+        policy.recordWrite(1, currentInvocation, 1);
+        policy.recordWrite(0, invalidatedInvocation, 1);
+        policy.recordWrite(1, replacedInvocation, 1);
+        policy.recordWrite(1, replacedInvocation, 5);
+
+        for (int key = 2; key < 10_000; key++) {
+            CachedInvocation<?> invocation = new CachedInvocation<>(CompletableFuture.completedFuture(key), () -> { });
+            invocations.put(key, invocation);
+            policy.recordWrite(key, invocation, 1);
+            // the requested keys push the tracked ones out of the protected segment, so they get evicted eventually
+            policy.recordRead(key);
+            policy.recordRead(key);
+            Assertions.assertTrue(invocations.size() <= 10, "size = " + invocations.size());
+        }
+
+        // the current invocation is evicted as well, instead of being left in the cache without being tracked
+        Assertions.assertFalse(invocations.containsKey(1));
+    }
+
+    @Test
+    public void testCachedInvokerMaximumWeight() {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        CachedInvoker cachedInvoker = CachedInvoker.builder(executor)
+                .maximumWeight(100, (hash, result) -> ((String) result).length())
+                .ttl(1, TimeUnit.MINUTES)
+                .build();
+
+        for (int key = 0; key < 1000; key++) {
+            Assertions.assertEquals("0123456789", cachedInvoker.invokeOnce(key, () -> "0123456789"));
+        }
+
+        // the weight of the last result is recorded asynchronously once the invocation completes
+        Assertions.assertTrue(cachedInvoker.size() <= 11, "size = " + cachedInvoker.size());
+    }
+
+    @Test
+    public void testCachedInvokerNegativeWeight() {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        CachedInvoker cachedInvoker = CachedInvoker.builder(executor)
+                .maximumWeight(100, (hash, result) -> ((String) result).isEmpty() ? -1000 : ((String) result).length())
+                .build();
+
+        // the negative weight is rejected instead of lowering the total weight
+        Assertions.assertEquals("", cachedInvoker.invokeOnce("EMPTY", () -> ""));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (cachedInvoker.size() != 0 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        Assertions.assertEquals(0, cachedInvoker.size());
+
+        for (int key = 0; key < 1000; key++) {
+            Assertions.assertEquals("0123456789", cachedInvoker.invokeOnce(key, () -> "0123456789"));
+        }
+        Assertions.assertTrue(cachedInvoker.size() <= 11, "size = " + cachedInvoker.size());
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCachedInvokerRefreshAfter() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        CachedInvoker cachedInvoker = CachedInvoker.builder(executor)
+                .refreshAfter(500, TimeUnit.MILLISECONDS)
+                .ttl(1, TimeUnit.MINUTES)
+                .build();
+
+        AtomicInteger timesExecuted = new AtomicInteger(0);
+
+        double value = cachedInvoker.invokeOnce("TASK-1", () -> fetchValue(timesExecuted));
+        Thread.sleep(550);
+
+        // the stale value is served without waiting, while a single refresh is started
+        long startTime = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(value, cachedInvoker.invokeOnce("TASK-1", () -> fetchValue(timesExecuted)));
+        }
+        Assertions.assertTrue(System.nanoTime() - startTime < TimeUnit.MILLISECONDS.toNanos(100));
+
+        Thread.sleep(300);
+
+        Assertions.assertEquals(2, timesExecuted.get());
+        Assertions.assertNotEquals(value, cachedInvoker.invokeOnce("TASK-1", () -> fetchValue(timesExecuted)));
+        Assertions.assertEquals(2, timesExecuted.get());
+    }
+
+    @Test
+    public void testCachedInvokerCallerRuns() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        CachedInvoker cachedInvoker = CachedInvoker.builder(executor)
+                .callerRuns(true)
+                .build();
+
+        AtomicInteger timesExecuted = new AtomicInteger(0);
+        Thread currentThread = Thread.currentThread();
+
+        Assertions.assertSame(currentThread, cachedInvoker.invokeOnce("TASK-1", Thread::currentThread));
+
+        // the concurrent callers wait for the invocation started by the first one
+        CompletableFuture<Double> concurrentCall = CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+
+            return cachedInvoker.invokeOnce("TASK-2", () -> {
+                Assertions.fail("This is not supposed to be executed");
+                return fetchValue(timesExecuted);
+            });
+        }, executor);
+
+        CachedInvocation<Double> invocation = cachedInvoker.invoke("TASK-2", () -> fetchValue(timesExecuted));
+        Assertions.assertTrue(invocation.future().isDone());
+        Assertions.assertEquals(invocation.get(), concurrentCall.get());
+        invocation.close();
+
+        Assertions.assertEquals(1, timesExecuted.get());
+    }
+
+    @Test
+    public void testCachedInvokerDoesNotFormatHashWithoutTracing() {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        CachedInvoker cachedInvoker = new CachedInvoker(executor);
+
+        AtomicInteger timesFormatted = new AtomicInteger(0);
+        Object hash = new Object() {
+            @Override
+            public String toString() {
+                timesFormatted.incrementAndGet();
+                return "HASH";
+            }
+        };
+
+        CachedInvocation<Integer> invocation = cachedInvoker.invoke(hash, () -> 1);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertSame(invocation, cachedInvoker.invoke(hash, () -> 2));
+        }
+        Assertions.assertEquals(1, invocation.getOnce());
+
+        // the tests log at the DEBUG level, so the scoped logger is not built
+        Assertions.assertEquals(0, timesFormatted.get());
+    }
+
+    @Test
+    public void testCachedInvokerRejectedInvocation() {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        executor.shutdown();
+
+        for (CachedInvoker cachedInvoker : new CachedInvoker[]{
+                new CachedInvoker(executor),
+                new CachedInvoker(executor, 1, TimeUnit.MINUTES)}) {
+            // the rejected invocation is not cached, so the next call doesn't wait for it forever
+            for (int i = 0; i < 2; i++) {
+                Assertions.assertThrows(RejectedExecutionException.class, () -> cachedInvoker.invoke(1, () -> 1));
+            }
+            Assertions.assertEquals(0, cachedInvoker.size());
+        }
+    }
+
     private double fetchValue(AtomicInteger timesExecuted) throws Exception {
         timesExecuted.getAndIncrement();
 
@@ -0,0 +1,59 @@
+package dev.b37.mgutils.concurrent.execution.coalescing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CoalescingExecutorTest {
+    @Test
+    public void testCoalescingExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CoalescingExecutor coalescingExecutor = new CoalescingExecutor(executor);
+
+        CountDownLatch firstTaskLatch = new CountDownLatch(1);
+        AtomicInteger executedCount = new AtomicInteger();
+
+        CompletableFuture<Integer> firstFuture = coalescingExecutor.submit("key", () -> {
+            firstTaskLatch.await();
+            executedCount.incrementAndGet();
+            return -1;
+        });
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            futures.add(coalescingExecutor.submit("key", () -> {
+                executedCount.incrementAndGet();
+                return value;
+            }));
+        }
+
+        CompletableFuture<Integer> otherFuture = coalescingExecutor.submit("other key", () -> 1);
+        Assertions.assertEquals(1, otherFuture.get());
+
+        firstTaskLatch.countDown();
+
+        Assertions.assertEquals(-1, firstFuture.get());
+        for (CompletableFuture<Integer> future : futures) {
+            Assertions.assertEquals(99, future.get());
+        }
+        Assertions.assertEquals(2, executedCount.get());
+
+        // the entry is removed right after the result is set
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (coalescingExecutor.getActiveKeyCount() != 0 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        Assertions.assertEquals(0, coalescingExecutor.getActiveKeyCount());
+
+        Assertions.assertEquals(5, coalescingExecutor.submit("key", () -> 5).get());
+    }
+}
@@ -0,0 +1,86 @@
+package dev.b37.mgutils.concurrent.execution.keyed;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class KeyedExecutorTest {
+    @Test
+    public void testKeyedExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        KeyedExecutor keyedExecutor = new KeyedExecutor(executor, 4);
+
+        int keyCount = 100;
+        int taskCount = 100;
+        ConcurrentHashMap<Integer, List<Integer>> executedTasks = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Integer, AtomicInteger> runningTasks = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (int i = 0; i < taskCount; i++) {
+            for (int key = 0; key < keyCount; key++) {
+                int taskIndex = i;
+                int taskKey = key;
+                futures.add(keyedExecutor.submit(taskKey, () -> {
+                    AtomicInteger running = runningTasks.computeIfAbsent(taskKey, k -> new AtomicInteger());
+                    Assertions.assertEquals(1, running.incrementAndGet());
+
+                    // not synchronized, since the tasks of the same key are never executed concurrently
+                    executedTasks.computeIfAbsent(taskKey, k -> new ArrayList<>()).add(taskIndex);
+
+                    running.decrementAndGet();
+                }));
+            }
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        for (int key = 0; key < keyCount; key++) {
+            List<Integer> keyTasks = executedTasks.get(key);
+            Assertions.assertEquals(taskCount, keyTasks.size());
+            for (int i = 0; i < taskCount; i++) {
+                Assertions.assertEquals(i, keyTasks.get(i));
+            }
+        }
+
+        // the idle keys are removed right after their last results are set
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (keyedExecutor.getActiveKeyCount() != 0 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        Assertions.assertEquals(0, keyedExecutor.getActiveKeyCount());
+    }
+
+    @Test
+    public void testKeyedExecutorFailure() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        KeyedExecutor keyedExecutor = new KeyedExecutor(executor);
+
+        CompletableFuture<Integer> failed = keyedExecutor.submit("key", () -> {
+            Thread.sleep(50);
+            throw new IllegalStateException("failed");
+        });
+        CompletableFuture<Integer> next = keyedExecutor.submit("key", () -> 2);
+
+        Assertions.assertThrows(Exception.class, failed::join);
+        Assertions.assertEquals(2, next.join());
+
+        // the key is removed right after the result is set
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (keyedExecutor.getActiveKeyCount() != 0 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        Assertions.assertEquals(0, keyedExecutor.getActiveKeyCount());
+
+        executor.shutdown();
+        Assertions.assertThrows(Exception.class, () -> keyedExecutor.submit("other", () -> 3).join());
+        Assertions.assertEquals(0, keyedExecutor.getActiveKeyCount());
+    }
+}
@@ -0,0 +1,40 @@
+package dev.b37.mgutils.concurrent.execution.virtual;
+
+import dev.b37.mgutils.concurrent.TaskInvoker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class VirtualThreadExecutorsTest {
+    @Test
+    public void testVirtualThreadExecutor() {
+        ExecutorService executor = VirtualThreadExecutors.newVirtualThreadPerTaskExecutorOrElse(Executors::newCachedThreadPool);
+        TaskInvoker<Integer> invoker = new TaskInvoker<>(executor);
+
+        for (int i = 0; i < 1000; i++) {
+            int number = i;
+            invoker.submit(() -> {
+                Thread.sleep(100);
+                return number;
+            });
+        }
+
+        List<Integer> results = invoker.completeAll();
+        executor.shutdown();
+
+        Assertions.assertEquals(1000, results.size());
+        Assertions.assertEquals(999, results.get(999));
+    }
+
+    @Test
+    public void testUnsupportedVirtualThreads() {
+        if (VirtualThreadExecutors.isSupported()) {
+            Assertions.assertDoesNotThrow(() -> VirtualThreadExecutors.newVirtualThreadPerTaskExecutor().shutdown());
+        } else {
+            Assertions.assertThrows(UnsupportedOperationException.class, VirtualThreadExecutors::newVirtualThreadPerTaskExecutor);
+        }
+    }
+}